@@ -0,0 +1,126 @@
+import benchmarks.Workload;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+// 基准测试调用的被测代码(见 benchmarks.Workload)
+public class JmhWorkload implements Workload {
+    private final SyntheticCorpus corpus = new SyntheticCorpus(VOCABULARY, 1.0, SEED);
+    private final TextToDotGraph textGraph = new TextToDotGraph();
+    private WordGraph graph = WordGraph.EMPTY;
+    private GraphQueryEngine queries;
+
+    @Override
+    public String corpusFile(int megabytes) throws IOException {
+        long bytes = (long) megabytes << 20;
+        Path file = Paths.get(System.getProperty("java.io.tmpdir"),
+                "lab1-corpus-" + VOCABULARY + "-" + SEED + "-" + megabytes + "m.txt");
+        // 生成的文件略大于 bytes
+        if (!Files.exists(file) || Files.size(file) < bytes) {
+            Path partial = Files.createTempFile(file.getParent(), "lab1-corpus", ".part");
+            corpus.write(partial.toString(), bytes);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file.toString();
+    }
+
+    @Override
+    public int readTxt(String file) {
+        TextToDotGraph fresh = new TextToDotGraph();
+        fresh.readTxt(file);
+        return fresh.wordGraph().nodeCount();
+    }
+
+    @Override
+    public void load(int megabytes) throws IOException {
+        textGraph.readTxt(corpusFile(megabytes));
+        graph = textGraph.wordGraph();
+        queries = textGraph.queries();
+    }
+
+    @Override
+    public String[] hubWords(int count) {
+        String[] words = new String[count];
+        int i = 0;
+        for (int rank = 0; i < count && rank < corpus.vocabulary(); rank++) {
+            if (graph.contains(corpus.wordAt(rank))) {
+                words[i++] = corpus.wordAt(rank);
+            }
+        }
+        return found(words, i);
+    }
+
+    // 按 Zipf 排名取最靠后的单词(只取图中出现过的)
+    @Override
+    public String[] leafWords(int count) {
+        String[] words = new String[count];
+        int i = 0;
+        for (int rank = corpus.vocabulary() - 1; i < count && rank >= 0; rank--) {
+            if (graph.contains(corpus.wordAt(rank))) {
+                words[i++] = corpus.wordAt(rank);
+            }
+        }
+        return found(words, i);
+    }
+
+    // 图中出现的单词不足 count 个时截短; 一个也没有时(例如还没有载入语料)无法生成查询
+    private static String[] found(String[] words, int count) {
+        if (count == 0) {
+            throw new IllegalStateException("no vocabulary word occurs in the graph; load a corpus first");
+        }
+        return count == words.length ? words : Arrays.copyOf(words, count);
+    }
+
+    @Override
+    public String[] sampleWords(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = corpus.wordAt(corpus.sample(random));
+        }
+        return words;
+    }
+
+    @Override
+    public Object findBridgeWords(String word1, String word2) {
+        return queries.bridgeWords(word1, word2);
+    }
+
+    @Override
+    public String getBridgeWord(String word1, String word2, Random random) {
+        return queries.pickBridgeWord(graph, word1, word2, random);
+    }
+
+    @Override
+    public String generateNewText(String text, Random random) {
+        return queries.generateNewText(text, random);
+    }
+
+    @Override
+    public Object shortestPaths(String startWord, String endWord, int limit) {
+        return queries.shortestPaths(startWord, endWord, limit);
+    }
+
+    @Override
+    public void exportDot(OutputStream out) throws IOException {
+        new DotWriter(graph, graph.word(0)).write(out, Collections.emptyList());
+    }
+
+    @Override
+    public int walk(int steps, Random random) {
+        int current = random.nextInt(graph.nodeCount());
+        for (int step = 0; step < steps; step++) {
+            int edge = queries.nextEdge(graph, current, random);
+            current = edge < 0 ? random.nextInt(graph.nodeCount()) : graph.target(edge);
+        }
+        return current;
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 桥接词查询: hub 为高频词之间的单词对(邻接表很长), leaf 为低频词之间的单词对
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BridgeWordsBenchmark {
+    @Param({"16"})
+    public int corpusMegabytes;
+
+    @Param({"hub", "leaf"})
+    public String pairs;
+
+    private Workload workload;
+    private String[] words;
+    private final Random random = new Random(1);
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        workload = Workload.create();
+        workload.load(corpusMegabytes);
+        words = pairs.equals("hub") ? workload.hubWords(32) : workload.leafWords(32);
+    }
+
+    // 依次遍历所有单词对
+    private int nextPair() {
+        next = (next + 1) % (words.length * words.length);
+        return next;
+    }
+
+    @Benchmark
+    public Object findBridgeWords() {
+        int pair = nextPair();
+        return workload.findBridgeWords(words[pair / words.length], words[pair % words.length]);
+    }
+
+    @Benchmark
+    public String getBridgeWord() {
+        int pair = nextPair();
+        return workload.getBridgeWord(words[pair / words.length], words[pair % words.length], random);
+    }
+}
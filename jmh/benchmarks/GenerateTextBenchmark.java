@@ -0,0 +1,60 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// generateNewText 吞吐量: 每个输入是按词频抽取的 sentenceWords 个单词
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenerateTextBenchmark {
+    private static final int SENTENCES = 1024;
+
+    @Param({"16"})
+    public int corpusMegabytes;
+
+    @Param({"20"})
+    public int sentenceWords;
+
+    private Workload workload;
+    private String[] sentences;
+    private final Random random = new Random(1);
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        workload = Workload.create();
+        workload.load(corpusMegabytes);
+        String[] words = workload.sampleWords(SENTENCES * sentenceWords, 7);
+        sentences = new String[SENTENCES];
+        for (int i = 0; i < SENTENCES; i++) {
+            StringBuilder sentence = new StringBuilder();
+            for (int k = 0; k < sentenceWords; k++) {
+                sentence.append(words[i * sentenceWords + k]).append(' ');
+            }
+            sentences[i] = sentence.toString().trim();
+        }
+    }
+
+    @Benchmark
+    public String generateNewText() {
+        next = (next + 1) & (SENTENCES - 1);
+        return workload.generateNewText(sentences[next], random);
+    }
+}
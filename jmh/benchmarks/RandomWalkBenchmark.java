@@ -0,0 +1,47 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 随机游走每秒的步数(去掉了交互式游走中每步 1 秒的等待), 结果以步为单位
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RandomWalkBenchmark {
+    private static final int STEPS = 1000;
+
+    @Param({"16"})
+    public int corpusMegabytes;
+
+    private Workload workload;
+    private final Random random = new Random(1);
+
+    @Setup
+    public void setup() throws IOException {
+        workload = Workload.create();
+        workload.load(corpusMegabytes);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public int walk() {
+        return workload.walk(STEPS, random);
+    }
+}
@@ -0,0 +1,42 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// readTxt 构图耗时, 语料从 1 MB 到 1 GB; 每次调用读入整个文件, 因此使用单次计时
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReadTxtBenchmark {
+    @Param({"1", "16", "128", "1024"})
+    public int corpusMegabytes;
+
+    private Workload workload;
+    private String file;
+
+    @Setup
+    public void setup() throws IOException {
+        workload = Workload.create();
+        file = workload.corpusFile(corpusMegabytes);
+    }
+
+    @Benchmark
+    public int readTxt() {
+        return workload.readTxt(file);
+    }
+}
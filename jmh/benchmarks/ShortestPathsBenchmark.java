@@ -0,0 +1,47 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// shortestPaths 延迟分布与图规模的关系, 起点和终点按词频随机抽取, 最多取 5 条路径
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ShortestPathsBenchmark {
+    private static final int PAIRS = 1024;
+
+    @Param({"1", "16", "128"})
+    public int corpusMegabytes;
+
+    private Workload workload;
+    private String[] words;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        workload = Workload.create();
+        workload.load(corpusMegabytes);
+        words = workload.sampleWords(2 * PAIRS, 11);
+    }
+
+    @Benchmark
+    public Object shortestPaths() {
+        next = (next + 2) & (2 * PAIRS - 1);
+        return workload.shortestPaths(words[next], words[next + 1], 5);
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+// 被测代码都在默认包中, 而 JMH 要求基准测试类在具名包中, 具名包又不能引用默认包的类;
+// 因此基准测试通过这个接口调用默认包中的实现 JmhWorkload(运行时按类名载入)
+public interface Workload {
+    // 确定性的 Zipf 语料使用的词汇量和种子, 相同大小的语料在任何机器上都相同
+    int VOCABULARY = 100_000;
+    long SEED = 42L;
+
+    static Workload create() {
+        try {
+            return (Workload) Class.forName("JmhWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 约 megabytes MB 的合成语料文件(在临时目录中缓存, 已存在时直接复用)
+    String corpusFile(int megabytes) throws IOException;
+
+    // 读入文本文件构建图, 返回结点数
+    int readTxt(String file);
+
+    // 读入约 megabytes MB 的合成语料, 之后的查询都在这个图上进行
+    void load(int megabytes) throws IOException;
+
+    // 图中出现最多的 count 个单词(图中的单词不足 count 个时返回全部)
+    String[] hubWords(int count);
+
+    // 图中出现最少的 count 个单词(图中的单词不足 count 个时返回全部)
+    String[] leafWords(int count);
+
+    // 按词频随机抽取 count 个单词
+    String[] sampleWords(int count, long seed);
+
+    Object findBridgeWords(String word1, String word2);
+
+    String getBridgeWord(String word1, String word2, Random random);
+
+    String generateNewText(String text, Random random);
+
+    Object shortestPaths(String startWord, String endWord, int limit);
+
+    // 把整个图以 DOT 格式写到 out
+    void exportDot(OutputStream out) throws IOException;
+
+    // 随机游走 steps 步(不等待), 走到没有出边的结点时从随机结点重新开始; 返回最后所在的结点
+    int walk(int steps, Random random);
+}
@@ -0,0 +1,94 @@
+import java.util.Random;
+
+// 按边权对出边进行加权随机采样(Walker 别名法)
+// 每个结点的别名表在图冻结后一次性构建, 之后每次采样 O(1) 且不分配内存
+public class AliasSampler {
+    private final WordGraph graph;
+    // 与 CSR 中的边一一对应: 以 prob[e] 的概率选中 e, 否则选中 alias[e]
+    private final float[] prob;
+    private final int[] alias;
+
+    public AliasSampler(WordGraph graph) {
+        this.graph = graph;
+        int edgeCount = graph.edgeCount();
+        prob = new float[edgeCount];
+        alias = new int[edgeCount];
+        int maxDegree = 0;
+        for (int u = 0; u < graph.nodeCount(); u++) {
+            maxDegree = Math.max(maxDegree, graph.outDegree(u));
+        }
+        double[] scaled = new double[maxDegree];
+        int[] small = new int[maxDegree];
+        int[] large = new int[maxDegree];
+        for (int u = 0; u < graph.nodeCount(); u++) {
+            build(u, scaled, small, large);
+        }
+    }
+
+    // Vose 算法构建结点 u 的别名表
+    private void build(int u, double[] scaled, int[] small, int[] large) {
+        int start = graph.edgeStart(u);
+        int degree = graph.outDegree(u);
+        long total = 0;
+        for (int i = 0; i < degree; i++) {
+            total += graph.weight(start + i);
+        }
+        int smallCount = 0, largeCount = 0;
+        for (int i = 0; i < degree; i++) {
+            scaled[i] = (double) graph.weight(start + i) * degree / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            prob[start + less] = (float) scaled[less];
+            alias[start + less] = start + more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // 剩余的列概率为 1(包括浮点误差造成的剩余)
+        while (largeCount > 0) {
+            int i = large[--largeCount];
+            prob[start + i] = 1.0f;
+            alias[start + i] = start + i;
+        }
+        while (smallCount > 0) {
+            int i = small[--smallCount];
+            prob[start + i] = 1.0f;
+            alias[start + i] = start + i;
+        }
+    }
+
+    public WordGraph graph() {
+        return graph;
+    }
+
+    // 按边权采样结点 u 的一条出边, 返回边下标; u 没有出边时返回 -1
+    public int sampleEdge(int u, Random random) {
+        int degree = graph.outDegree(u);
+        if (degree == 0) {
+            return -1;
+        }
+        int edge = graph.edgeStart(u) + random.nextInt(degree);
+        return random.nextFloat() < prob[edge] ? edge : alias[edge];
+    }
+
+    // 等概率采样结点 u 的一条出边(与边权无关), u 没有出边时返回 -1
+    public static int uniformEdge(WordGraph graph, int u, Random random) {
+        int degree = graph.outDegree(u);
+        return degree == 0 ? -1 : graph.edgeStart(u) + random.nextInt(degree);
+    }
+
+    // 估算占用的堆内存(字节)
+    public long estimateHeapBytes() {
+        return 32L + 16L + 4L * prob.length + 16L + 4L * alias.length;
+    }
+}
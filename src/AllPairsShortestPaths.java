@@ -0,0 +1,190 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// 全源最短路径: 按源点分块, 多个线程并行地对每个源点跑一次迪杰斯特拉, 结果写入文件
+// 两种输出:
+//   距离矩阵(二进制): 头部为 int32 魔数 "APSP"、版本号、结点数 n, 随后是 n 行 n 列 int32 距离(小端),
+//                    第 i 行第 j 列为单词 ID i 到 j 的距离, 不可达为 -1. 文件大小为 4n^2, 只适合小图
+//   top-k 表(文本): 每行 "单词<TAB>邻居:距离 邻居:距离 ...", 列出距离最近的 k 个可达单词(不含自身),
+//                  距离相同时按单词 ID 排序. 每个源点只需确定 k + 1 个结点就可以停止
+public class AllPairsShortestPaths {
+    public static final int MAGIC = 0x41505350;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 12;
+    // 每个任务负责的源点个数
+    private static final int BLOCK = 64;
+    // top-k 输出时每个线程最多领先写出线程的块数
+    private static final int WINDOW = 4;
+
+    private final WordGraph graph;
+    private final int threads;
+
+    public AllPairsShortestPaths(WordGraph graph, int threads) {
+        this.graph = graph;
+        this.threads = Math.max(1, threads);
+    }
+
+    // 写出完整的距离矩阵, 返回可达的(有序)结点对个数(包括自身到自身)
+    public long writeMatrix(String outputFile) throws IOException {
+        int n = graph.nodeCount();
+        try (FileChannel channel = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).flip();
+            writeFully(channel, header, 0);
+            long[] reachable = new long[blocks(n)];
+            // 各行写到各自的位置, 不需要按顺序
+            invoke((index, from, to) -> {
+                ShortestPathEngine engine = new ShortestPathEngine(graph);
+                ShortestPathEngine.Scratch s = ShortestPathEngine.scratch(n);
+                ByteBuffer row = ByteBuffer.allocate(4 * n).order(ByteOrder.LITTLE_ENDIAN);
+                long count = 0;
+                for (int source = from; source < to; source++) {
+                    try {
+                        engine.run(s, source, -1);
+                        count += s.touchedCount;
+                        row.clear();
+                        for (int v = 0; v < n; v++) {
+                            int d = s.dist[v];
+                            row.putInt(d == PredecessorDag.UNREACHABLE ? -1 : d);
+                        }
+                    } finally {
+                        s.reset();
+                    }
+                    row.flip();
+                    writeFully(channel, row, HEADER_BYTES + 4L * n * source);
+                }
+                reachable[index] = count;
+            });
+            return Arrays.stream(reachable).sum();
+        }
+    }
+
+    // 写出每个单词最近的 k 个可达单词, 返回写出的条目数
+    // 各块按顺序提交到线程池, 调用线程按块的顺序取回结果并立即写出; 最多 WINDOW * threads 个块在计算或等待写出,
+    // 因此内存占用与单词数无关
+    public long writeTopK(String outputFile, int k) throws IOException {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        int n = graph.nodeCount();
+        int blocks = blocks(n);
+        long entries = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(outputFile)), 1 << 20)) {
+            ArrayDeque<Future<TopKBlock>> pending = new ArrayDeque<>();
+            for (int block = 0; block < blocks || !pending.isEmpty(); ) {
+                if (block < blocks && pending.size() < WINDOW * threads) {
+                    int from = block * BLOCK;
+                    int to = Math.min(n, from + BLOCK);
+                    pending.add(pool.submit(() -> topK(from, to, k)));
+                    block++;
+                } else {
+                    TopKBlock done = pending.poll().get();
+                    out.write(done.text);
+                    entries += done.entries;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing " + outputFile);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return entries;
+    }
+
+    // 一个块的 top-k 文本及其中的条目数
+    private static final class TopKBlock {
+        final byte[] text;
+        final long entries;
+
+        TopKBlock(byte[] text, long entries) {
+            this.text = text;
+            this.entries = entries;
+        }
+    }
+
+    private TopKBlock topK(int from, int to, int k) {
+        ShortestPathEngine engine = new ShortestPathEngine(graph);
+        ShortestPathEngine.Scratch s = ShortestPathEngine.scratch(graph.nodeCount());
+        long[] nearest = new long[16];
+        StringBuilder text = new StringBuilder();
+        long count = 0;
+        for (int source = from; source < to; source++) {
+            int size = 0;
+            try {
+                engine.run(s, source, -1, k + 1);
+                // 已出堆的结点距离不大于任何未出堆的结点, 按 (距离, ID) 排序后取前 k 个
+                for (int i = 0; i < s.touchedCount; i++) {
+                    int v = s.touched[i];
+                    if (v != source && s.settled[v]) {
+                        if (size == nearest.length) {
+                            nearest = Arrays.copyOf(nearest, size << 1);
+                        }
+                        nearest[size++] = ((long) s.dist[v] << 32) | v;
+                    }
+                }
+            } finally {
+                s.reset();
+            }
+            Arrays.sort(nearest, 0, size);
+            size = Math.min(size, k);
+            text.append(graph.word(source)).append('\t');
+            for (int i = 0; i < size; i++) {
+                if (i > 0) text.append(' ');
+                text.append(graph.word((int) nearest[i])).append(':').append((int) (nearest[i] >>> 32));
+            }
+            text.append('\n');
+            count += size;
+        }
+        return new TopKBlock(text.toString().getBytes(StandardCharsets.UTF_8), count);
+    }
+
+    private static int blocks(int n) {
+        return BlockTask.blocks(n, BLOCK);
+    }
+
+    private void invoke(BlockTask.Block block) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            BlockTask.invoke(pool, graph.nodeCount(), BLOCK, block);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) {
+        try {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
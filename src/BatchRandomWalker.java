@@ -0,0 +1,180 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 批量生成随机游走(例如用于训练词向量的语料), 不等待、不监听键盘
+// 停止规则与 randomWalk 相同: 第一次走到重复的边(该边的终点也输出)或走到没有出边的结点
+// 每条游走占一行, 单词之间用空格分隔, 通过带缓冲的 Writer 流式写入文件
+public class BatchRandomWalker {
+    // 每个线程攒够这么多字符再加锁写入一次
+    private static final int FLUSH_CHARS = 1 << 16;
+
+    private final WordGraph graph;
+    // 为 null 时等概率选择下一跳
+    private final AliasSampler sampler;
+    private final int threads;
+
+    public static final class Report {
+        public final long walks;
+        public final long steps;
+        public final long elapsedNanos;
+
+        Report(long walks, long steps, long elapsedNanos) {
+            this.walks = walks;
+            this.steps = steps;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double walksPerSecond() {
+            return elapsedNanos == 0 ? 0 : walks * 1e9 / elapsedNanos;
+        }
+
+        public double stepsPerSecond() {
+            return elapsedNanos == 0 ? 0 : steps * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d walks, %d steps in %.3f s (%.0f walks/s, %.0f steps/s)",
+                    walks, steps, elapsedNanos / 1e9, walksPerSecond(), stepsPerSecond());
+        }
+    }
+
+    public BatchRandomWalker(WordGraph graph, AliasSampler sampler, int threads) {
+        this.graph = graph;
+        this.sampler = sampler;
+        this.threads = Math.max(1, threads);
+    }
+
+    // 走一次随机游走, 结点写入 path[0..返回值), path 不够长时扩容并通过 holder 返回
+    static int walk(WordGraph graph, AliasSampler sampler, int start, Random random,
+                    EdgeVisitSet visited, int[][] holder) {
+        int[] path = holder[0];
+        visited.clear();
+        int length = 0;
+        int current = start;
+        while (true) {
+            if (length + 2 > path.length) {
+                path = Arrays.copyOf(path, path.length << 1);
+                holder[0] = path;
+            }
+            path[length++] = current;
+            int edge = sampler != null ? sampler.sampleEdge(current, random) : AliasSampler.uniformEdge(graph, current, random);
+            if (edge < 0) {
+                return length;
+            }
+            int next = graph.target(edge);
+            if (!visited.add(edge)) {
+                path[length++] = next;
+                return length;
+            }
+            current = next;
+        }
+    }
+
+    // 生成 walkCount 条游走; starts 为起点 ID 列表(依次轮流使用), 为 null 时随机选择起点
+    public Report generate(long walkCount, int[] starts, String outputFile) throws IOException {
+        return run(walkCount, Long.MAX_VALUE, starts, outputFile);
+    }
+
+    // 在 durationMillis 毫秒内尽可能多地生成游走
+    public Report generateFor(long durationMillis, int[] starts, String outputFile) throws IOException {
+        return run(Long.MAX_VALUE, System.nanoTime() + durationMillis * 1_000_000L, starts, outputFile);
+    }
+
+    private Report run(long walkCount, long deadline, int[] starts, String outputFile) throws IOException {
+        if (graph.isEmpty()) {
+            return new Report(0, 0, 0);
+        }
+        AtomicLong claimed = new AtomicLong();
+        AtomicLong steps = new AtomicLong();
+        long begin = System.nanoTime();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(outputFile)), StandardCharsets.UTF_8), 1 << 20)) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    futures.add(pool.submit(() -> {
+                        worker(walkCount, deadline, starts, claimed, steps, writer);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        long walks = Math.min(claimed.get(), walkCount);
+        return new Report(walks, steps.get(), System.nanoTime() - begin);
+    }
+
+    private void worker(long walkCount, long deadline, int[] starts, AtomicLong claimed, AtomicLong steps, Writer writer) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        EdgeVisitSet visited = new EdgeVisitSet(graph.edgeCount());
+        int[][] holder = {new int[64]};
+        StringBuilder buffer = new StringBuilder(FLUSH_CHARS + 1024);
+        long localSteps = 0;
+        long index;
+        while ((index = claimed.getAndIncrement()) < walkCount) {
+            if (deadline != Long.MAX_VALUE && System.nanoTime() >= deadline) {
+                break;
+            }
+            int start = starts != null ? starts[(int) (index % starts.length)] : random.nextInt(graph.nodeCount());
+            int length = walk(graph, sampler, start, random, visited, holder);
+            int[] path = holder[0];
+            for (int i = 0; i < length; i++) {
+                if (i > 0) buffer.append(' ');
+                buffer.append(graph.word(path[i]));
+            }
+            buffer.append('\n');
+            localSteps += length - 1;
+            if (buffer.length() >= FLUSH_CHARS) {
+                flush(writer, buffer);
+            }
+        }
+        // 超时退出时最后一次领取的编号并没有生成游走
+        if (deadline != Long.MAX_VALUE) {
+            claimed.decrementAndGet();
+        }
+        flush(writer, buffer);
+        steps.addAndGet(localSteps);
+    }
+
+    private static void flush(Writer writer, StringBuilder buffer) {
+        if (buffer.length() == 0) {
+            return;
+        }
+        try {
+            synchronized (writer) {
+                writer.append(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// 按块并行: [0, count) 每 blockSize 个一块, 把块号区间二分拆成子任务, 叶子任务处理一个块
+// 供全源最短路径和单词排名共用
+@SuppressWarnings("serial") // 只在本进程的线程池中执行, 不会被序列化
+final class BlockTask extends RecursiveAction {
+    // 处理一个块: index 为块号, [from, to) 为其中的元素
+    interface Block {
+        void run(int index, int from, int to);
+    }
+
+    private final Block block;
+    private final int count;
+    private final int blockSize;
+    private final int from;
+    private final int to;
+
+    private BlockTask(Block block, int count, int blockSize, int from, int to) {
+        this.block = block;
+        this.count = count;
+        this.blockSize = blockSize;
+        this.from = from;
+        this.to = to;
+    }
+
+    static int blocks(int count, int blockSize) {
+        return (count + blockSize - 1) / blockSize;
+    }
+
+    // 在 pool 中处理全部块, 返回时所有块都已完成
+    static void invoke(ForkJoinPool pool, int count, int blockSize, Block block) {
+        pool.invoke(new BlockTask(block, count, blockSize, 0, blocks(count, blockSize)));
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from > 1) {
+            int mid = (from + to) >>> 1;
+            invokeAll(new BlockTask(block, count, blockSize, from, mid),
+                    new BlockTask(block, count, blockSize, mid, to));
+        } else if (to > from) {
+            block.run(from, from * blockSize, Math.min(count, (from + 1) * blockSize));
+        }
+    }
+}
@@ -0,0 +1,263 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// 两跳桥接词索引: 以 (word1, word2) 为键, 直接给出所有桥接词 word3 (word1 -> word3 -> word2)
+// 索引在图冻结后一次性构建, 构建后只读; 两跳扇出过大的"枢纽词"以及超出内存上限的部分不建索引,
+// 查询时退回到有序邻接表求交集: out(word1) ∩ in(word2)
+public class BridgeIndex {
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+    public static final int DEFAULT_HUB_FANOUT = 1 << 16;
+
+    private static final int[] NONE = new int[0];
+    // 两个有序数组长度相差超过该倍数时, 改用二分(跳跃)查找求交
+    private static final int GALLOP_RATIO = 16;
+    // 每个词对的额外开销: 数组对象头 + lists 引用 + 哈希表槽位(按装载因子和扩容余量折算)
+    private static final int BYTES_PER_PAIR = 16 + 8 + 32;
+
+    private final WordGraph graph;
+    // 已建索引的起点, 对这些起点查不到的词对即没有桥接词
+    private final boolean[] indexed;
+    // 词对 -> lists 中的下标
+    private final LongIntHashMap slots = new LongIntHashMap();
+    private int[][] lists = new int[16][];
+    private int listCount;
+    private long bytes;
+
+    public BridgeIndex(WordGraph graph) {
+        this(graph, DEFAULT_MAX_BYTES, DEFAULT_HUB_FANOUT);
+    }
+
+    // maxBytes: 索引占用内存的上限(估算); hubFanout: 两跳路径数超过该值的起点视为枢纽词
+    public BridgeIndex(WordGraph graph, long maxBytes, int hubFanout) {
+        this.graph = graph;
+        int n = graph.nodeCount();
+        indexed = new boolean[n];
+        int[] counts = new int[n];
+        int[] touched = new int[n];
+        for (int u = 0; u < n; u++) {
+            long fanout = 0;
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                fanout += graph.outDegree(graph.target(e));
+            }
+            if (fanout > hubFanout) {
+                continue;
+            }
+            // 第一遍统计每个 word2 的桥接词个数, 第二遍填充(word3 按 ID 升序)
+            int touchedCount = 0;
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.target(e);
+                for (int f = graph.edgeStart(v); f < graph.edgeEnd(v); f++) {
+                    int w = graph.target(f);
+                    if (counts[w]++ == 0) {
+                        touched[touchedCount++] = w;
+                    }
+                }
+            }
+            long cost = 4L * fanout + (long) BYTES_PER_PAIR * touchedCount;
+            if (bytes + cost > maxBytes) {
+                for (int i = 0; i < touchedCount; i++) {
+                    counts[touched[i]] = 0;
+                }
+                continue;
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                int w = touched[i];
+                slots.put(WordGraph.Builder.edgeKey(u, w), add(new int[counts[w]]));
+                counts[w] = 0;
+            }
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.target(e);
+                for (int f = graph.edgeStart(v); f < graph.edgeEnd(v); f++) {
+                    int w = graph.target(f);
+                    lists[slots.get(WordGraph.Builder.edgeKey(u, w), -1)][counts[w]++] = v;
+                }
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                counts[touched[i]] = 0;
+            }
+            bytes += cost;
+            indexed[u] = true;
+        }
+        lists = Arrays.copyOf(lists, listCount);
+    }
+
+    private int add(int[] list) {
+        if (listCount == lists.length) {
+            lists = Arrays.copyOf(lists, listCount << 1);
+        }
+        lists[listCount] = list;
+        return listCount++;
+    }
+
+    public WordGraph graph() {
+        return graph;
+    }
+
+    public boolean isIndexed(int word1) {
+        return indexed[word1];
+    }
+
+    // 返回 word1 到 word2 的桥接词(按 ID 升序), 返回的数组不可修改
+    public int[] bridges(int word1, int word2) {
+        if (indexed[word1]) {
+            int slot = slots.get(WordGraph.Builder.edgeKey(word1, word2), -1);
+            return slot < 0 ? NONE : lists[slot];
+        }
+        return intersect(graph, word1, word2);
+    }
+
+    // 随机选择一个 word1 到 word2 的桥接词, 没有时返回 -1; weighted 时以 weight(word1 -> word3) * weight(word3 -> word2)
+    // 为权重, 否则等概率. 已建索引的起点直接从索引的列表中选, 否则在求交的同时做蓄水池抽样, 都不生成候选数组
+    public int sample(int word1, int word2, boolean weighted, Random random) {
+        if (!indexed[word1]) {
+            return sampleIntersection(graph, word1, word2, weighted, random);
+        }
+        int slot = slots.get(WordGraph.Builder.edgeKey(word1, word2), -1);
+        if (slot < 0) {
+            return -1;
+        }
+        int[] list = lists[slot];
+        if (!weighted) {
+            return list[random.nextInt(list.length)];
+        }
+        Reservoir reservoir = new Reservoir(graph, true, random);
+        for (int word3 : list) {
+            reservoir.offer(word3, (long) graph.weight(graph.findEdge(word1, word3))
+                    * graph.weight(graph.findEdge(word3, word2)));
+        }
+        return reservoir.chosen;
+    }
+
+    // 不使用索引, 在 out(word1) ∩ in(word2) 上做蓄水池抽样, 没有桥接词返回 -1
+    public static int sampleIntersection(WordGraph graph, int word1, int word2, boolean weighted, Random random) {
+        Reservoir reservoir = new Reservoir(graph, weighted, random);
+        forEachBridge(graph, word1, word2, reservoir);
+        return reservoir.chosen;
+    }
+
+    // 不使用索引, 对 word1 的出边与 word2 的入边这两个有序列表求交
+    public static int[] intersect(WordGraph graph, int word1, int word2) {
+        int aLength = graph.outDegree(word1), bLength = graph.inDegree(word2);
+        if (aLength == 0 || bLength == 0) {
+            return NONE;
+        }
+        Collector collector = new Collector(Math.min(aLength, bLength));
+        forEachBridge(graph, word1, word2, collector);
+        return collector.count == 0 ? NONE : Arrays.copyOf(collector.result, collector.count);
+    }
+
+    // 求交时依次(按 ID 升序)收到的桥接词: outEdge 为 word1 -> word3 的出边下标, inEdge 为 word3 -> word2 的入边下标
+    interface Visitor {
+        void bridge(int word3, int outEdge, int inEdge);
+    }
+
+    private static final class Collector implements Visitor {
+        final int[] result;
+        int count;
+
+        Collector(int capacity) {
+            result = new int[capacity];
+        }
+
+        @Override
+        public void bridge(int word3, int outEdge, int inEdge) {
+            result[count++] = word3;
+        }
+    }
+
+    // 单个样本的蓄水池抽样: 第 i 个候选以 w_i / (w_1 + ... + w_i) 的概率替换当前样本, 等概率时 w_i = 1
+    private static final class Reservoir implements Visitor {
+        final WordGraph graph;
+        final boolean weighted;
+        final Random random;
+        long total;
+        int chosen = -1;
+
+        Reservoir(WordGraph graph, boolean weighted, Random random) {
+            this.graph = graph;
+            this.weighted = weighted;
+            this.random = random;
+        }
+
+        void offer(int word3, long weight) {
+            total += weight;
+            if (random.nextLong(total) < weight) {
+                chosen = word3;
+            }
+        }
+
+        @Override
+        public void bridge(int word3, int outEdge, int inEdge) {
+            offer(word3, weighted ? (long) graph.weight(outEdge) * graph.inWeight(inEdge) : 1);
+        }
+    }
+
+    static void forEachBridge(WordGraph graph, int word1, int word2, Visitor visitor) {
+        int a = graph.edgeStart(word1), aEnd = graph.edgeEnd(word1);
+        int b = graph.inEdgeStart(word2), bEnd = graph.inEdgeEnd(word2);
+        int aLength = aEnd - a, bLength = bEnd - b;
+        if (aLength == 0 || bLength == 0) {
+            return;
+        }
+        if (aLength > bLength * GALLOP_RATIO) {
+            for (; b < bEnd && a < aEnd; b++) {
+                int v = graph.source(b);
+                a = gallop(graph, true, a, aEnd, v);
+                if (a < aEnd && graph.target(a) == v) {
+                    visitor.bridge(v, a, b);
+                }
+            }
+        } else if (bLength > aLength * GALLOP_RATIO) {
+            for (; a < aEnd && b < bEnd; a++) {
+                int v = graph.target(a);
+                b = gallop(graph, false, b, bEnd, v);
+                if (b < bEnd && graph.source(b) == v) {
+                    visitor.bridge(v, a, b);
+                }
+            }
+        } else {
+            while (a < aEnd && b < bEnd) {
+                int x = graph.target(a), y = graph.source(b);
+                if (x < y) {
+                    a++;
+                } else if (x > y) {
+                    b++;
+                } else {
+                    visitor.bridge(x, a, b);
+                    a++;
+                    b++;
+                }
+            }
+        }
+    }
+
+    // 在 [from, to) 中找到第一个不小于 key 的位置: 先按 1, 2, 4... 的步长跳跃, 再二分
+    private static int gallop(WordGraph graph, boolean outEdges, int from, int to, int key) {
+        int step = 1;
+        int low = from, high = from;
+        while (high < to && (outEdges ? graph.target(high) : graph.source(high)) < key) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if ((outEdges ? graph.target(mid) : graph.source(mid)) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 估算占用的堆内存(字节)
+    public long estimateHeapBytes() {
+        long bytes = 16L + indexed.length + slots.estimateHeapBytes() + 16L + 4L * lists.length;
+        for (int[] list : lists) {
+            bytes += 16L + 4L * list.length;
+        }
+        return bytes;
+    }
+}
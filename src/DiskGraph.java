@@ -0,0 +1,821 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+// 外存模式的只读图, 用于边数超出堆内存的语料
+// 构建: 分词时把边 (from, to) 的次数累加在有上限的 LongIntHashMap 中, 满了就按键排序写成一个有序的运行文件(run),
+//       读完后多路归并所有运行文件(相同的边次数相加)并顺序写出 CSR; 归并的同时把反向边写成运行文件, 再归并出反向 CSR
+// 查询: 文件按 1GB 分段映射到内存, 堆中只有单词字典和每次查询 O(结点数) 的数组, 与边数无关
+// 文件格式(小端, 各段按 8 字节对齐):
+//   头部 32 字节: 魔数 "WGDK", 版本号, 结点数 n, 保留, 边数 m(long), 单词字节数 b(long)
+//   long[n + 1] 出边偏移, (int 目标, int 边权)[m], long[n + 1] 入边偏移, (int 源结点, int 边权)[m],
+//   long[n + 1] 单词偏移, byte[b] 单词(UTF-8)
+// 头部最后写入, 构建中断时文件不会被当成完整的图
+public final class DiskGraph {
+    public static final int MAGIC = 0x4B444757;
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    // 每个映射段的大小, 是 8 的倍数, 所以对齐的 int/long 不会跨段
+    private static final long SEGMENT_BYTES = 1L << 30;
+    // 一次归并最多打开的运行文件数, 更多时先分组归并
+    private static final int MAX_FAN_IN = 64;
+    // 运行文件中一条记录的字节数: long 键 + int 次数
+    private static final int RECORD_BYTES = 12;
+
+    private final String file;
+    private final MappedByteBuffer[] segments;
+    private final WordDictionary dictionary;
+    private final int nodeCount;
+    private final long edgeCount;
+    private final long outOffsets;
+    private final long outEdges;
+    private final long inOffsets;
+    private final long inEdges;
+
+    private DiskGraph(String file, MappedByteBuffer[] segments, WordDictionary dictionary, int nodeCount, long edgeCount) {
+        this.file = file;
+        this.segments = segments;
+        this.dictionary = dictionary;
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        this.outOffsets = HEADER_BYTES;
+        this.outEdges = outOffsets + 8L * (nodeCount + 1);
+        this.inOffsets = outEdges + 8L * edgeCount;
+        this.inEdges = inOffsets + 8L * (nodeCount + 1);
+    }
+
+    // 每个运行文件最多容纳的不同边数, 按最大堆内存估算(哈希表与排序用的键数组每条边约 40 字节, 只占堆的一小部分)
+    public static int defaultRunEntries() {
+        return (int) Math.max(1 << 16, Math.min(1 << 26, Runtime.getRuntime().maxMemory() / 160));
+    }
+
+    public static DiskGraph build(String txtFile, String graphFile) throws IOException {
+        return build(txtFile, graphFile, defaultRunEntries());
+    }
+
+    // 由文本文件构建磁盘图并打开, runEntries 为每个运行文件的不同边数上限; 运行文件放在 graphFile 旁的临时目录中
+    public static DiskGraph build(String txtFile, String graphFile, int runEntries) throws IOException {
+        Path output = Paths.get(graphFile).toAbsolutePath();
+        Path tempDir = Files.createTempDirectory(output.getParent(), "wgdk-runs");
+        try {
+            WordDictionary dictionary = new WordDictionary();
+            RunSpiller forward = new RunSpiller(tempDir, "forward", runEntries);
+            int[] last = {-1};
+            try {
+                WordTokenizer.tokenizeFile(txtFile, (buffer, length) -> {
+                    int word = dictionary.intern(buffer, 0, length);
+                    if (last[0] >= 0) {
+                        try {
+                            forward.add(WordGraph.Builder.edgeKey(last[0], word), 1);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    last[0] = word;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            List<Path> forwardRuns = forward.finish();
+            int n = dictionary.size();
+            try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                // 正向 CSR; 每条边 (u, v) 同时以键 (v, u) 写入反向的运行文件
+                RunSpiller reverse = new RunSpiller(tempDir, "reverse", runEntries);
+                long m = writeCsr(channel, HEADER_BYTES, n, forwardRuns, tempDir, (key, count) ->
+                        reverse.add(WordGraph.Builder.edgeKey((int) key, (int) (key >>> 32)), count));
+                deleteAll(forwardRuns);
+                List<Path> reverseRuns = reverse.finish();
+                long inStart = HEADER_BYTES + 8L * (n + 1) + 8L * m;
+                writeCsr(channel, inStart, n, reverseRuns, tempDir, (key, count) -> { });
+                deleteAll(reverseRuns);
+
+                long wordStart = inStart + 8L * (n + 1) + 8L * m;
+                SectionWriter offsets = new SectionWriter(channel, wordStart);
+                SectionWriter words = new SectionWriter(channel, wordStart + 8L * (n + 1));
+                long wordBytes = 0;
+                offsets.putLong(0);
+                for (int id = 0; id < n; id++) {
+                    byte[] word = dictionary.word(id).getBytes(StandardCharsets.UTF_8);
+                    words.put(word);
+                    wordBytes += word.length;
+                    offsets.putLong(wordBytes);
+                }
+                offsets.flush();
+                words.flush();
+                SectionWriter header = new SectionWriter(channel, 0);
+                header.putInt(MAGIC);
+                header.putInt(VERSION);
+                header.putInt(n);
+                header.putInt(0);
+                header.putLong(m);
+                header.putLong(wordBytes);
+                header.flush();
+                channel.force(true);
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(tempDir)) {
+                deleteAll(files.toList());
+            }
+            Files.deleteIfExists(tempDir);
+        }
+        return open(graphFile);
+    }
+
+    // 归并有序的运行文件, 从 start 处写出 long[n + 1] 行偏移和 (int 列, int 次数)[m], 返回边数 m
+    private static long writeCsr(FileChannel channel, long start, int n, List<Path> runs, Path tempDir,
+                                 RecordSink also) throws IOException {
+        SectionWriter offsets = new SectionWriter(channel, start);
+        SectionWriter edges = new SectionWriter(channel, start + 8L * (n + 1));
+        long[] m = {0};
+        // 下一个还没写出偏移的行
+        int[] nextRow = {0};
+        merge(runs, tempDir, (key, count) -> {
+            int row = (int) (key >>> 32);
+            while (nextRow[0] <= row) {
+                offsets.putLong(m[0]);
+                nextRow[0]++;
+            }
+            edges.putInt((int) key);
+            edges.putInt(count);
+            m[0]++;
+            also.accept(key, count);
+        });
+        while (nextRow[0] <= n) {
+            offsets.putLong(m[0]);
+            nextRow[0]++;
+        }
+        offsets.flush();
+        edges.flush();
+        return m[0];
+    }
+
+    private interface RecordSink {
+        void accept(long key, int count) throws IOException;
+    }
+
+    // 在内存中累加 (键, 次数), 不同键的个数达到上限时按键排序写出一个运行文件
+    private static final class RunSpiller {
+        private final Path directory;
+        private final String prefix;
+        private final int maxEntries;
+        private LongIntHashMap pending;
+        private final List<Path> runs = new ArrayList<>();
+
+        RunSpiller(Path directory, String prefix, int maxEntries) {
+            this.directory = directory;
+            this.prefix = prefix;
+            this.maxEntries = maxEntries;
+            this.pending = new LongIntHashMap(maxEntries);
+        }
+
+        void add(long key, int count) throws IOException {
+            pending.addTo(key, count);
+            if (pending.size() >= maxEntries) {
+                spill();
+            }
+        }
+
+        private void spill() throws IOException {
+            long[] keys = pending.keys();
+            Arrays.sort(keys);
+            Path run = directory.resolve(prefix + "-" + runs.size() + ".run");
+            try (RunWriter writer = new RunWriter(run)) {
+                for (long key : keys) {
+                    writer.accept(key, pending.get(key, 0));
+                }
+            }
+            runs.add(run);
+            pending.clear();
+        }
+
+        // 写出剩余的记录并释放哈希表, 返回全部运行文件
+        List<Path> finish() throws IOException {
+            if (pending.size() > 0 || runs.isEmpty()) {
+                spill();
+            }
+            pending = null;
+            return runs;
+        }
+    }
+
+    private static final class RunWriter implements RecordSink, AutoCloseable {
+        private final DataOutputStream out;
+
+        RunWriter(Path run) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16));
+        }
+
+        @Override
+        public void accept(long key, int count) throws IOException {
+            out.writeLong(key);
+            out.writeInt(count);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static final class RunReader implements AutoCloseable {
+        private final DataInputStream in;
+        private long remaining;
+        long key;
+        int count;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+            remaining = Files.size(run) / RECORD_BYTES;
+        }
+
+        // 读入下一条记录, 没有更多记录时返回 false
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            key = in.readLong();
+            count = in.readInt();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // 多路归并有序的运行文件, 按键升序把每个键的总次数交给 sink; 文件多于 MAX_FAN_IN 个时先分组归并成中间文件
+    private static void merge(List<Path> runs, Path tempDir, RecordSink sink) throws IOException {
+        int pass = 0;
+        while (runs.size() > MAX_FAN_IN) {
+            List<Path> merged = new ArrayList<>();
+            for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                List<Path> group = runs.subList(i, Math.min(runs.size(), i + MAX_FAN_IN));
+                Path run = tempDir.resolve("merge-" + pass + "-" + merged.size() + ".run");
+                try (RunWriter writer = new RunWriter(run)) {
+                    mergeGroup(group, writer);
+                }
+                deleteAll(group);
+                merged.add(run);
+            }
+            runs = merged;
+            pass++;
+        }
+        mergeGroup(runs, sink);
+    }
+
+    private static void mergeGroup(List<Path> runs, RecordSink sink) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()),
+                Comparator.comparingLong((RunReader reader) -> reader.key));
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                long key = reader.key;
+                long count = reader.count;
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+                while (!queue.isEmpty() && queue.peek().key == key) {
+                    reader = queue.poll();
+                    count += reader.count;
+                    if (reader.next()) {
+                        queue.add(reader);
+                    }
+                }
+                // 边权与 WordGraph 一样是 int, 饱和而不是溢出
+                sink.accept(key, (int) Math.min(Integer.MAX_VALUE, count));
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static void deleteAll(List<Path> files) throws IOException {
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // 从文件的 position 处开始顺序写出小端数据
+    private static final class SectionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        SectionWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            if (buffer.remaining() < 8) {
+                flush();
+            }
+            buffer.putLong(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            for (int i = 0; i < bytes.length; ) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - i);
+                buffer.put(bytes, i, length);
+                i += length;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+
+    // 映射磁盘图文件, 并把单词字典读入堆中
+    public static DiskGraph open(String graphFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(graphFile), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("not a disk graph: " + graphFile);
+            }
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_BYTES;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_BYTES, size - start));
+                segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            ByteBuffer header = segments[0];
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("not a disk graph: " + graphFile);
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("unsupported disk graph version " + version + ": " + graphFile);
+            }
+            int n = header.getInt(8);
+            long m = header.getLong(16);
+            long wordBytes = header.getLong(24);
+            if (n < 0 || m < 0 || wordBytes < 0
+                    || size != HEADER_BYTES + 3 * 8L * (n + 1) + 2 * 8L * m + wordBytes) {
+                throw new IOException("corrupt disk graph header: " + graphFile);
+            }
+            DiskGraph graph = new DiskGraph(graphFile, segments, new WordDictionary(n), n, m);
+            graph.loadWords(wordBytes);
+            return graph;
+        }
+    }
+
+    private void loadWords(long wordBytes) throws IOException {
+        long offsets = inEdges + 8L * edgeCount;
+        long text = offsets + 8L * (nodeCount + 1);
+        byte[] word = new byte[64];
+        for (int id = 0; id < nodeCount; id++) {
+            long start = getLong(offsets + 8L * id);
+            int length = (int) (getLong(offsets + 8L * (id + 1)) - start);
+            if (length > word.length) {
+                word = new byte[Math.max(length, word.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                word[i] = getByte(text + start + i);
+            }
+            if (dictionary.intern(new String(word, 0, length, StandardCharsets.UTF_8)) != id) {
+                throw new IOException("duplicate word in disk graph: " + file);
+            }
+        }
+    }
+
+    private byte getByte(long position) {
+        return segments[(int) (position / SEGMENT_BYTES)].get((int) (position % SEGMENT_BYTES));
+    }
+
+    private int getInt(long position) {
+        return segments[(int) (position / SEGMENT_BYTES)].getInt((int) (position % SEGMENT_BYTES));
+    }
+
+    private long getLong(long position) {
+        return segments[(int) (position / SEGMENT_BYTES)].getLong((int) (position % SEGMENT_BYTES));
+    }
+
+    public String file() {
+        return file;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public long edgeCount() {
+        return edgeCount;
+    }
+
+    public boolean isEmpty() {
+        return nodeCount == 0;
+    }
+
+    // 单词 -> ID, 不存在返回 -1
+    public int id(String word) {
+        return dictionary.find(word);
+    }
+
+    public String word(int id) {
+        return dictionary.word(id);
+    }
+
+    public boolean contains(String word) {
+        return dictionary.find(word) >= 0;
+    }
+
+    public long edgeStart(int u) {
+        return getLong(outOffsets + 8L * u);
+    }
+
+    public long edgeEnd(int u) {
+        return getLong(outOffsets + 8L * (u + 1));
+    }
+
+    public int target(long edge) {
+        return getInt(outEdges + 8 * edge);
+    }
+
+    public int weight(long edge) {
+        return getInt(outEdges + 8 * edge + 4);
+    }
+
+    public long inEdgeStart(int v) {
+        return getLong(inOffsets + 8L * v);
+    }
+
+    public long inEdgeEnd(int v) {
+        return getLong(inOffsets + 8L * (v + 1));
+    }
+
+    public int source(long inEdge) {
+        return getInt(inEdges + 8 * inEdge);
+    }
+
+    public int inWeight(long inEdge) {
+        return getInt(inEdges + 8 * inEdge + 4);
+    }
+
+    // 二分查找边 from -> to 的下标, 不存在返回 -1
+    public long findEdge(int from, int to) {
+        long low = edgeStart(from);
+        long high = edgeEnd(from) - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int target = target(mid);
+            if (target < to) {
+                low = mid + 1;
+            } else if (target > to) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // 堆中的单词字典(查询时另需 O(结点数) 的临时数组, 边全部在映射的文件中)
+    public long estimateHeapBytes() {
+        return 64L + dictionary.estimateHeapBytes();
+    }
+
+    private List<String> missing(String... words) {
+        List<String> missing = new ArrayList<>(0);
+        for (String word : words) {
+            if (!contains(word)) {
+                missing.add(word);
+            }
+        }
+        return missing;
+    }
+
+    // 查询 word1 到 word2 的所有桥接词(按单词 ID 排序): 对 word1 的出边与 word2 的入边求交, 两者都按 ID 有序
+    public GraphQueryEngine.BridgeWords bridgeWords(String word1, String word2) {
+        word1 = word1.toLowerCase();
+        word2 = word2.toLowerCase();
+        List<String> missing = missing(word1, word2);
+        if (!missing.isEmpty()) {
+            return new GraphQueryEngine.BridgeWords(word1, word2, missing, Collections.emptyList());
+        }
+        List<String> bridges = new ArrayList<>();
+        forEachBridge(id(word1), id(word2), (word3, outEdge, inEdge) -> bridges.add(word(word3)));
+        return new GraphQueryEngine.BridgeWords(word1, word2, missing, bridges);
+    }
+
+    // 处理一个桥接词: outEdge 为 word1 -> word3 的出边, inEdge 为 word3 -> word2 的入边
+    private interface BridgeVisitor {
+        void bridge(int word3, long outEdge, long inEdge);
+    }
+
+    private void forEachBridge(int u, int v, BridgeVisitor visitor) {
+        long e = edgeStart(u);
+        long eEnd = edgeEnd(u);
+        long f = inEdgeStart(v);
+        long fEnd = inEdgeEnd(v);
+        while (e < eEnd && f < fEnd) {
+            int a = target(e);
+            int b = source(f);
+            if (a < b) {
+                e++;
+            } else if (a > b) {
+                f++;
+            } else {
+                visitor.bridge(a, e, f);
+                e++;
+                f++;
+            }
+        }
+    }
+
+    // 随机选择一个桥接词, 没有时返回 null; 与 BridgeIndex.sample 相同, 加权时按 weight(word1 -> word3) * weight(word3 -> word2)
+    // 用单元素蓄水池抽样, 不生成候选列表
+    public String pickBridgeWord(String word1, String word2, SamplingMode mode, Random random) {
+        int u = id(word1);
+        int v = id(word2);
+        if (u < 0 || v < 0) {
+            return null;
+        }
+        boolean weighted = mode == SamplingMode.WEIGHTED;
+        long[] total = {0};
+        int[] chosen = {-1};
+        forEachBridge(u, v, (word3, outEdge, inEdge) -> {
+            long w = weighted ? (long) weight(outEdge) * inWeight(inEdge) : 1;
+            total[0] += w;
+            if (random.nextLong(total[0]) < w) {
+                chosen[0] = word3;
+            }
+        });
+        return chosen[0] < 0 ? null : word(chosen[0]);
+    }
+
+    // 与 GraphQueryEngine.generateNewText 相同: 在相邻两个单词之间插入一个随机选择的桥接词(如果有的话)
+    public String generateNewText(String inputText, SamplingMode mode, Random random) {
+        List<String> words = WordTokenizer.words(inputText);
+        if (words.isEmpty()) {
+            return inputText;
+        }
+        StringBuilder newText = new StringBuilder();
+        for (int i = 0; i < words.size() - 1; i++) {
+            newText.append(words.get(i)).append(' ');
+            String bridgeWord = pickBridgeWord(words.get(i), words.get(i + 1), mode, random);
+            if (bridgeWord != null) {
+                newText.append(bridgeWord).append(' ');
+            }
+        }
+        return newText.append(words.get(words.size() - 1)).toString();
+    }
+
+    // 单源最短路径: 不提前停止的迪杰斯特拉, 返回到每个结点的距离(不可达为 PredecessorDag.UNREACHABLE);
+    // firstPred[v] 记录第一个使 v 取得最短距离的前驱(与 ShortestPathTree 的第一个前驱相同), 源点和不可达结点为 -1
+    public int[] shortestDistances(int start, int[] firstPred) {
+        int[] dist = new int[nodeCount];
+        Arrays.fill(dist, PredecessorDag.UNREACHABLE);
+        Arrays.fill(firstPred, -1);
+        boolean[] settled = new boolean[nodeCount];
+        IndexedHeap heap = new IndexedHeap(nodeCount);
+        heap.setKeys(dist);
+        dist[start] = 0;
+        heap.push(start);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settled[u] = true;
+            for (long e = edgeStart(u); e < edgeEnd(u); e++) {
+                int v = target(e);
+                long d = (long) dist[u] + weight(e);
+                if (!settled[v] && d < dist[v]) {
+                    dist[v] = (int) d;
+                    firstPred[v] = u;
+                    heap.push(v);
+                }
+            }
+        }
+        return dist;
+    }
+
+    // 计算 startWord 到 endWord 的最短路径, 最多取 limit 条
+    // 带下标堆的迪杰斯特拉, 终点出堆即停止; 搜索时顺便累计到达每个结点的最短路径条数, 再沿入边从终点回溯枚举路径
+    public GraphQueryEngine.ShortestPaths shortestPaths(String startWord, String endWord, int limit) {
+        startWord = startWord.toLowerCase();
+        endWord = endWord.toLowerCase();
+        List<String> missing = missing(startWord, endWord);
+        if (!missing.isEmpty()) {
+            return new GraphQueryEngine.ShortestPaths(startWord, endWord, missing, PredecessorDag.UNREACHABLE,
+                    Collections.emptyList(), 0);
+        }
+        int start = id(startWord);
+        int end = id(endWord);
+        int[] dist = new int[nodeCount];
+        Arrays.fill(dist, PredecessorDag.UNREACHABLE);
+        long[] pathCount = new long[nodeCount];
+        // 出堆的次序(从 1 开始), 还没出堆为 0
+        int[] settled = new int[nodeCount];
+        int settledCount = 0;
+        IndexedHeap heap = new IndexedHeap(nodeCount);
+        heap.setKeys(dist);
+        dist[start] = 0;
+        pathCount[start] = 1;
+        heap.push(start);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settled[u] = ++settledCount;
+            if (u == end) {
+                break;
+            }
+            for (long e = edgeStart(u); e < edgeEnd(u); e++) {
+                int v = target(e);
+                if (settled[v] > 0) {
+                    continue;
+                }
+                long d = (long) dist[u] + weight(e);
+                if (d < dist[v]) {
+                    dist[v] = (int) d;
+                    pathCount[v] = pathCount[u];
+                    heap.push(v);
+                } else if (d == dist[v]) {
+                    pathCount[v] = saturatedAdd(pathCount[v], pathCount[u]);
+                }
+            }
+        }
+        if (settled[end] == 0) {
+            return new GraphQueryEngine.ShortestPaths(startWord, endWord, missing, PredecessorDag.UNREACHABLE,
+                    Collections.emptyList(), 0);
+        }
+        List<List<String>> paths = enumeratePaths(start, end, dist, settled, limit);
+        return new GraphQueryEngine.ShortestPaths(startWord, endWord, missing, dist[end], paths, pathCount[end]);
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    // 从终点沿入边做深度优先搜索, 只走满足 dist[u] + w = dist[v] 的边(u 都已出堆), 得到前 limit 条路径
+    // 同一结点的前驱按出堆的次序访问, 与 PredecessorDag 中按松弛先后保存的顺序相同, 所以路径顺序与内存中的图一致
+    private List<List<String>> enumeratePaths(int start, int end, int[] dist, int[] settled, int limit) {
+        List<List<String>> paths = new ArrayList<>();
+        // nodes[i] 为路径上倒数第 i + 1 个结点, preds[i] 为它的前驱(还没求出时为 null), cursor[i] 为下一个要访问的前驱
+        int[] nodes = new int[8];
+        int[][] preds = new int[8][];
+        int[] cursor = new int[8];
+        int depth = 0;
+        nodes[0] = end;
+        while (depth >= 0 && paths.size() < limit) {
+            int v = nodes[depth];
+            if (v == start) {
+                List<String> path = new ArrayList<>(depth + 1);
+                for (int i = depth; i >= 0; i--) {
+                    path.add(word(nodes[i]));
+                }
+                paths.add(path);
+                depth--;
+                continue;
+            }
+            if (preds[depth] == null) {
+                preds[depth] = predecessors(v, dist, settled);
+                cursor[depth] = 0;
+            }
+            if (cursor[depth] == preds[depth].length) {
+                preds[depth] = null;
+                depth--;
+                continue;
+            }
+            int u = preds[depth][cursor[depth]++];
+            if (++depth == nodes.length) {
+                nodes = Arrays.copyOf(nodes, depth * 2);
+                preds = Arrays.copyOf(preds, depth * 2);
+                cursor = Arrays.copyOf(cursor, depth * 2);
+            }
+            nodes[depth] = u;
+            preds[depth] = null;
+        }
+        return paths;
+    }
+
+    // 结点 v 在最短路径上的前驱, 按出堆的次序排列
+    private int[] predecessors(int v, int[] dist, int[] settled) {
+        long[] found = new long[8];
+        int n = 0;
+        for (long f = inEdgeStart(v); f < inEdgeEnd(v); f++) {
+            int u = source(f);
+            if (settled[u] > 0 && (long) dist[u] + inWeight(f) == dist[v]) {
+                if (n == found.length) {
+                    found = Arrays.copyOf(found, n * 2);
+                }
+                found[n++] = ((long) settled[u] << 32) | u;
+            }
+        }
+        Arrays.sort(found, 0, n);
+        int[] preds = new int[n];
+        for (int i = 0; i < n; i++) {
+            preds[i] = (int) found[i];
+        }
+        return preds;
+    }
+
+    // 等概率选择结点 u 的一条出边, 没有出边时返回 -1
+    public long randomEdge(int u, Random random) {
+        return randomEdge(u, SamplingMode.UNIFORM, random);
+    }
+
+    // 按 mode 选择结点 u 的一条出边, 没有出边时返回 -1
+    // 加权时按边权累加扫描出边(文件中没有别名表), 代价与出度成正比
+    public long randomEdge(int u, SamplingMode mode, Random random) {
+        long start = edgeStart(u);
+        long end = edgeEnd(u);
+        if (start == end) {
+            return -1;
+        }
+        if (mode != SamplingMode.WEIGHTED) {
+            return start + random.nextLong(end - start);
+        }
+        long total = 0;
+        for (long e = start; e < end; e++) {
+            total += weight(e);
+        }
+        long r = random.nextLong(total);
+        long e = start;
+        for (r -= weight(e); r >= 0; r -= weight(e)) {
+            e++;
+        }
+        return e;
+    }
+
+    public GraphQueryEngine.RandomWalk randomWalk(String startWord, long maxSteps) {
+        return randomWalk(startWord, maxSteps, ThreadLocalRandom.current());
+    }
+
+    public GraphQueryEngine.RandomWalk randomWalk(String startWord, long maxSteps, Random random) {
+        return randomWalk(startWord, maxSteps, SamplingMode.UNIFORM, random);
+    }
+
+    // 从 startWord(为 null 时随机选择)出发随机游走, 出边按 mode 选择, 直到第一次走到重复的边(该边的终点也包括在内)、
+    // 走到没有出边的结点或走了 maxSteps 步; 走过的边记在哈希表中, 内存与步数成正比; 图为空或没有 startWord 时返回 null
+    public GraphQueryEngine.RandomWalk randomWalk(String startWord, long maxSteps, SamplingMode mode, Random random) {
+        if (isEmpty()) {
+            return null;
+        }
+        int current = startWord == null ? random.nextInt(nodeCount) : id(startWord.toLowerCase());
+        if (current < 0) {
+            return null;
+        }
+        LongIntHashMap visited = new LongIntHashMap();
+        List<String> path = new ArrayList<>();
+        path.add(word(current));
+        for (long step = 0; step < maxSteps; step++) {
+            long edge = randomEdge(current, mode, random);
+            if (edge < 0) {
+                break;
+            }
+            current = target(edge);
+            path.add(word(current));
+            if (visited.addTo(edge, 1) > 1) {
+                return new GraphQueryEngine.RandomWalk(path, true);
+            }
+        }
+        return new GraphQueryEngine.RandomWalk(path, false);
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// 流式写出 DOT 文件: 直接遍历 CSR 邻接表, 通过大缓冲区写出, 不为每一行拼接字符串
+// 需要标记的路径边预先放进哈希表(边 -> 路径序号), 每条边只查一次表;
+// 第 i 条路径的边使用 PATH_COLORS[i], 属于多条路径的边为黄色. 文件名以 .gz 结尾时以 gzip 压缩写出
+public class DotWriter {
+    // 不同最短路径的颜色也不同
+    public static final List<String> PATH_COLORS = List.of("blue", "red", "green", "orange", "pink");
+    private static final String SHARED_COLOR = "yellow";
+    private static final int SHARED = -2;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final WordGraph graph;
+    private final String rootWord;
+    // 格式化整数用的临时数组
+    private final char[] digits = new char[11];
+
+    public DotWriter(WordGraph graph, String rootWord) {
+        this.graph = graph;
+        this.rootWord = rootWord;
+    }
+
+    // 写出整个图, paths 为要标记的路径(结点 ID 数组), 只标记前 PATH_COLORS.size() 条
+    public void write(String outputFile, List<int[]> paths) throws IOException {
+        OutputStream out = Files.newOutputStream(Paths.get(outputFile));
+        if (outputFile.endsWith(".gz")) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        try (OutputStream stream = out) {
+            write(stream, paths);
+        }
+    }
+
+    // 写到 out, 写完后刷新但不关闭
+    public void write(OutputStream out, List<int[]> paths) throws IOException {
+        LongIntHashMap highlighted = pathEdges(paths);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write("digraph G {\n");
+        // 固定根节点
+        if (rootWord != null) {
+            writer.write("    \"");
+            writer.write(rootWord);
+            writer.write("\" [root=true];\n");
+        }
+        for (int u = 0; u < graph.nodeCount(); u++) {
+            String from = graph.word(u);
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.target(e);
+                writer.write("    \"");
+                writer.write(from);
+                writer.write("\" -> \"");
+                writer.write(graph.word(v));
+                writer.write("\" [label=\"");
+                writeInt(writer, graph.weight(e));
+                writer.write('"');
+                int path = highlighted.size() == 0 ? -1 : highlighted.get(WordGraph.Builder.edgeKey(u, v), -1);
+                if (path != -1) {
+                    writer.write(", color=\"");
+                    writer.write(path == SHARED ? SHARED_COLOR : PATH_COLORS.get(path));
+                    writer.write('"');
+                }
+                writer.write("];\n");
+            }
+        }
+        writer.write("}\n");
+        writer.flush();
+    }
+
+    // 路径上的边 -> 所在路径的序号, 属于多条路径的边为 SHARED
+    private static LongIntHashMap pathEdges(List<int[]> paths) {
+        LongIntHashMap edges = new LongIntHashMap();
+        int count = Math.min(paths.size(), PATH_COLORS.size());
+        for (int i = 0; i < count; i++) {
+            int[] path = paths.get(i);
+            for (int k = 0; k + 1 < path.length; k++) {
+                long key = WordGraph.Builder.edgeKey(path[k], path[k + 1]);
+                int old = edges.get(key, -1);
+                if (old == -1) {
+                    edges.put(key, i);
+                } else if (old != i) {
+                    edges.put(key, SHARED);
+                }
+            }
+        }
+        return edges;
+    }
+
+    // 边权都是正数
+    private void writeInt(Writer writer, int value) throws IOException {
+        int pos = digits.length;
+        do {
+            digits[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        writer.write(digits, pos, digits.length - pos);
+    }
+}
@@ -0,0 +1,28 @@
+import java.util.Arrays;
+
+// 记录一次随机游走中走过的边(用 CSR 中的边下标表示)
+// 每条边对应一个时间戳, clear() 只需把当前时间戳加一, 不必清空数组
+public class EdgeVisitSet {
+    private final int[] stamps;
+    private int epoch = 1;
+
+    public EdgeVisitSet(int edgeCount) {
+        stamps = new int[edgeCount];
+    }
+
+    public void clear() {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+    }
+
+    // 加入一条边, 如果这条边已经走过则返回 false
+    public boolean add(int edge) {
+        if (stamps[edge] == epoch) {
+            return false;
+        }
+        stamps[edge] = epoch;
+        return true;
+    }
+}
@@ -0,0 +1,392 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+// 单词排名: 加权 PageRank、每个单词按边权排序的前 K 个后继、度数最高的枢纽词、度分布直方图, 可导出为 CSV
+// 全部基于冻结图的 CSR 数组; PageRank 沿反向 CSR 拉取(每个结点只写自己的值), 按结点块并行,
+// 块内和块间都按固定顺序求和, 因此结果与线程数无关
+public class GraphAnalytics {
+    public static final double DEFAULT_DAMPING = 0.85;
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+    // 每个并行块的结点数
+    private static final int BLOCK = 4096;
+
+    private final WordGraph graph;
+    private final int threads;
+    // 每个结点出边的权重之和
+    private final long[] outWeights;
+    private volatile TopSuccessors topSuccessors;
+
+    public GraphAnalytics(WordGraph graph, int threads) {
+        this.graph = graph;
+        this.threads = Math.max(1, threads);
+        int n = graph.nodeCount();
+        outWeights = new long[n];
+        for (int u = 0; u < n; u++) {
+            long sum = 0;
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                sum += graph.weight(e);
+            }
+            outWeights[u] = sum;
+        }
+    }
+
+    public WordGraph graph() {
+        return graph;
+    }
+
+    public static final class PageRank {
+        public final double[] ranks;
+        public final int iterations;
+        // 最后一轮的 L1 变化量
+        public final double delta;
+
+        PageRank(double[] ranks, int iterations, double delta) {
+            this.ranks = ranks;
+            this.iterations = iterations;
+            this.delta = delta;
+        }
+
+        // 排名最高的 k 个结点, 按排名降序(相同时 ID 小的在前)
+        public int[] top(int k) {
+            return GraphAnalytics.top(ranks.length, k, (a, b) -> {
+                int c = Double.compare(ranks[a], ranks[b]);
+                return c != 0 ? c : Integer.compare(b, a);
+            });
+        }
+    }
+
+    public PageRank pageRank() {
+        return pageRank(DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    // 加权 PageRank 的幂迭代: 从 u 走到 v 的概率为 weight(u, v) / outWeight(u), 没有出边的结点均匀跳转;
+    // 两轮之间的 L1 变化量小于 tolerance 或达到 maxIterations 轮时停止
+    public PageRank pageRank(double damping, double tolerance, int maxIterations) {
+        int n = graph.nodeCount();
+        if (n == 0) {
+            return new PageRank(new double[0], 0, 0);
+        }
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        // 每个结点单位权重上的转移量, 即 rank / outWeight
+        double[] share = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+        int blocks = BlockTask.blocks(n, BLOCK);
+        double[] partial = new double[blocks];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            int iteration = 0;
+            double delta = Double.MAX_VALUE;
+            while (iteration < maxIterations && delta >= tolerance) {
+                double[] current = rank;
+                // 第一遍: 计算转移量, 累加悬挂结点(没有出边)的排名
+                BlockTask.invoke(pool, n, BLOCK, (block, from, to) -> {
+                    double dangling = 0;
+                    for (int u = from; u < to; u++) {
+                        if (outWeights[u] == 0) {
+                            dangling += current[u];
+                            share[u] = 0;
+                        } else {
+                            share[u] = current[u] / outWeights[u];
+                        }
+                    }
+                    partial[block] = dangling;
+                });
+                double base = (1 - damping + damping * sum(partial)) / n;
+                // 第二遍: 沿入边拉取, 同时累加变化量
+                double[] target = next;
+                BlockTask.invoke(pool, n, BLOCK, (block, from, to) -> {
+                    double change = 0;
+                    for (int v = from; v < to; v++) {
+                        double sum = 0;
+                        for (int e = graph.inEdgeStart(v); e < graph.inEdgeEnd(v); e++) {
+                            sum += share[graph.source(e)] * graph.inWeight(e);
+                        }
+                        target[v] = base + damping * sum;
+                        change += Math.abs(target[v] - current[v]);
+                    }
+                    partial[block] = change;
+                });
+                delta = sum(partial);
+                next = rank;
+                rank = target;
+                iteration++;
+            }
+            return new PageRank(rank, iteration, delta);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static double sum(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    // 每个结点按边权降序排列的前 K 个后继(边权相同时 ID 小的在前), 存成 CSR
+    public static final class TopSuccessors {
+        public final int k;
+        private final int[] offsets;
+        // 出边在 CSR 中的下标
+        private final int[] edges;
+
+        TopSuccessors(int k, int[] offsets, int[] edges) {
+            this.k = k;
+            this.offsets = offsets;
+            this.edges = edges;
+        }
+
+        public int count(int u) {
+            return offsets[u + 1] - offsets[u];
+        }
+
+        // u 的第 i 个后继对应的边下标
+        public int edge(int u, int i) {
+            return edges[offsets[u] + i];
+        }
+    }
+
+    // 至少保留 k 个后继的列表: 第一次使用时用大小为 k 的小根堆为每个结点构建一次, 之后直接复用
+    public TopSuccessors topSuccessors(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        TopSuccessors current = topSuccessors;
+        if (current == null || current.k < k) {
+            current = buildTopSuccessors(k);
+            topSuccessors = current;
+        }
+        return current;
+    }
+
+    private TopSuccessors buildTopSuccessors(int k) {
+        int n = graph.nodeCount();
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] = offsets[u] + Math.min(k, graph.outDegree(u));
+        }
+        int[] edges = new int[offsets[n]];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            BlockTask.invoke(pool, n, BLOCK, (block, from, to) -> {
+                int[] heap = new int[k];
+                for (int u = from; u < to; u++) {
+                    int size = 0;
+                    for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                        if (size < k) {
+                            heap[size] = e;
+                            siftUp(heap, size++);
+                        } else if (heavier(e, heap[0])) {
+                            heap[0] = e;
+                            siftDown(heap, size);
+                        }
+                    }
+                    // 依次弹出堆顶(最轻的)从后往前填
+                    int base = offsets[u];
+                    while (size > 0) {
+                        edges[base + size - 1] = heap[0];
+                        heap[0] = heap[--size];
+                        siftDown(heap, size);
+                    }
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+        return new TopSuccessors(k, offsets, edges);
+    }
+
+    // 同一结点的两条出边: a 是否排在 b 之前
+    private boolean heavier(int a, int b) {
+        int wa = graph.weight(a);
+        int wb = graph.weight(b);
+        return wa != wb ? wa > wb : graph.target(a) < graph.target(b);
+    }
+
+    // 以"最不重"的边为堆顶
+    private void siftUp(int[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!heavier(heap[parent], heap[i])) {
+                break;
+            }
+            int t = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = t;
+            i = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heavier(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!heavier(heap[i], heap[child])) {
+                break;
+            }
+            int t = heap[child];
+            heap[child] = heap[i];
+            heap[i] = t;
+            i = child;
+        }
+    }
+
+    public enum Degree {
+        IN, OUT, TOTAL
+    }
+
+    public int degree(int u, Degree degree) {
+        switch (degree) {
+            case IN:
+                return graph.inDegree(u);
+            case OUT:
+                return graph.outDegree(u);
+            default:
+                return graph.inDegree(u) + graph.outDegree(u);
+        }
+    }
+
+    // 度数最高的 k 个结点, 按度数降序(相同时 ID 小的在前)
+    public int[] hubs(int k, Degree degree) {
+        return top(graph.nodeCount(), k, (a, b) -> {
+            int c = Integer.compare(degree(a, degree), degree(b, degree));
+            return c != 0 ? c : Integer.compare(b, a);
+        });
+    }
+
+    // 度分布: 一遍扫描 CSR 偏移量, 不保存每个结点的度数
+    public LogHistogram degreeHistogram(Degree degree) {
+        LogHistogram histogram = new LogHistogram();
+        for (int u = 0; u < graph.nodeCount(); u++) {
+            histogram.record(degree(u, degree));
+        }
+        return histogram;
+    }
+
+    // 按 order 排序的前 k 个结点(降序): 大小为 k 的小根堆, 只扫描一遍
+    private interface NodeOrder {
+        int compare(int a, int b);
+    }
+
+    private static int[] top(int n, int k, NodeOrder order) {
+        k = Math.min(k, n);
+        int[] heap = new int[k];
+        int size = 0;
+        for (int u = 0; u < n; u++) {
+            if (size < k) {
+                heap[size] = u;
+                for (int i = size++; i > 0 && order.compare(heap[(i - 1) >>> 1], heap[i]) > 0; i = (i - 1) >>> 1) {
+                    int t = heap[i];
+                    heap[i] = heap[(i - 1) >>> 1];
+                    heap[(i - 1) >>> 1] = t;
+                }
+            } else if (k > 0 && order.compare(u, heap[0]) > 0) {
+                heap[0] = u;
+                for (int i = 0; ; ) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && order.compare(heap[child + 1], heap[child]) < 0) {
+                        child++;
+                    }
+                    if (order.compare(heap[i], heap[child]) <= 0) {
+                        break;
+                    }
+                    int t = heap[i];
+                    heap[i] = heap[child];
+                    heap[child] = t;
+                    i = child;
+                }
+            }
+        }
+        Integer[] sorted = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = heap[i];
+        }
+        Arrays.sort(sorted, (a, b) -> order.compare(b, a));
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = sorted[i];
+        }
+        return result;
+    }
+
+    // CSV: rank,word,pagerank,in_degree,out_degree; limit 为输出的行数(不大于结点数)
+    public void writePageRankCsv(String file, PageRank pageRank, int limit) throws IOException {
+        try (Writer out = csv(file)) {
+            out.write("rank,word,pagerank,in_degree,out_degree\n");
+            int[] top = pageRank.top(limit);
+            for (int i = 0; i < top.length; i++) {
+                int u = top[i];
+                out.write((i + 1) + "," + graph.word(u) + "," + pageRank.ranks[u] + ","
+                        + graph.inDegree(u) + "," + graph.outDegree(u) + "\n");
+            }
+        }
+    }
+
+    // CSV: word,rank,successor,weight, 每个结点最多 k 行
+    public void writeTopSuccessorsCsv(String file, int k) throws IOException {
+        TopSuccessors successors = topSuccessors(k);
+        try (Writer out = csv(file)) {
+            out.write("word,rank,successor,weight\n");
+            StringBuilder line = new StringBuilder();
+            for (int u = 0; u < graph.nodeCount(); u++) {
+                for (int i = 0; i < Math.min(k, successors.count(u)); i++) {
+                    int e = successors.edge(u, i);
+                    line.setLength(0);
+                    line.append(graph.word(u)).append(',').append(i + 1).append(',')
+                            .append(graph.word(graph.target(e))).append(',').append(graph.weight(e)).append('\n');
+                    out.append(line);
+                }
+            }
+        }
+    }
+
+    // CSV: rank,word,in_degree,out_degree,total_degree, 按 degree 降序
+    public void writeHubsCsv(String file, int k, Degree degree) throws IOException {
+        try (Writer out = csv(file)) {
+            out.write("rank,word,in_degree,out_degree,total_degree\n");
+            int[] hubs = hubs(k, degree);
+            for (int i = 0; i < hubs.length; i++) {
+                int u = hubs[i];
+                out.write((i + 1) + "," + graph.word(u) + "," + graph.inDegree(u) + "," + graph.outDegree(u) + ","
+                        + degree(u, Degree.TOTAL) + "\n");
+            }
+        }
+    }
+
+    // CSV: direction,degree_from,degree_to,nodes, 每个非空桶一行, 桶为 [degree_from, degree_to]
+    public void writeDegreeHistogramCsv(String file) throws IOException {
+        try (Writer out = csv(file)) {
+            out.write("direction,degree_from,degree_to,nodes\n");
+            StringBuilder lines = new StringBuilder();
+            for (Degree degree : Degree.values()) {
+                String name = degree.name().toLowerCase();
+                degreeHistogram(degree).forEachBucket((low, high, count) ->
+                        lines.append(name).append(',').append(low).append(',').append(high).append(',').append(count).append('\n'));
+            }
+            out.append(lines);
+        }
+    }
+
+    private static Writer csv(String file) throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8), 1 << 16);
+    }
+}
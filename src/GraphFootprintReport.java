@@ -0,0 +1,82 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+// 堆内存占用报告: 在同一输入上比较旧的 Map<String, Map<String, Integer>> 与新的 CSR 图
+// 用法: java GraphFootprintReport <文本文件>
+public class GraphFootprintReport {
+
+    // 按原先 readTxt 的方式构建 map-of-maps 邻接表
+    static Map<String, Map<String, Integer>> buildLegacyGraph(String txtFile) throws IOException {
+        Map<String, Map<String, Integer>> graph = new HashMap<>();
+        String lastWord = null;
+        try (Scanner scanner = new Scanner(new File(txtFile))) {
+            while (scanner.hasNextLine()) {
+                String[] words = scanner.nextLine().toLowerCase().split("[^a-zA-Z]+");
+                if (words.length == 0) continue;
+                if (lastWord != null) {
+                    graph.computeIfAbsent(lastWord, k -> new HashMap<>()).merge(words[0], 1, Integer::sum);
+                }
+                for (int i = 0; i < words.length - 1; i++) {
+                    graph.computeIfAbsent(words[i], k -> new HashMap<>()).merge(words[i + 1], 1, Integer::sum);
+                }
+                lastWord = words[words.length - 1];
+                graph.putIfAbsent(lastWord, new HashMap<>());
+            }
+        }
+        return graph;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java GraphFootprintReport <text file>");
+            return;
+        }
+        String txtFile = args[0];
+
+        long before = usedHeap();
+        Map<String, Map<String, Integer>> legacy = buildLegacyGraph(txtFile);
+        long legacyBytes = usedHeap() - before;
+        int legacyEdges = 0;
+        for (Map<String, Integer> edges : legacy.values()) {
+            legacyEdges += edges.size();
+        }
+        int legacyNodes = legacy.size();
+        legacy = null;
+
+        before = usedHeap();
+        TextToDotGraph textGraph = new TextToDotGraph();
+        textGraph.readTxt(txtFile);
+        WordGraph graph = textGraph.wordGraph();
+        // 构建器只在读入时需要, 这里只统计冻结后的图
+        long csrBytes = graph.estimateHeapBytes();
+        long measured = usedHeap() - before;
+
+        System.out.printf("%-28s %12s %12s %16s%n", "layout", "nodes", "edges", "heap (bytes)");
+        System.out.printf("%-28s %12d %12d %16d%n", "map-of-maps (measured)", legacyNodes, legacyEdges, legacyBytes);
+        System.out.printf("%-28s %12d %12d %16d%n", "CSR + builder (measured)", graph.nodeCount(), graph.edgeCount(), measured);
+        System.out.printf("%-28s %12d %12d %16d%n", "CSR frozen (estimated)", graph.nodeCount(), graph.edgeCount(), csrBytes);
+        // 反向邻接表只在第一次查询入边时生成(桥接词索引、双向搜索、ALT、PageRank)
+        System.out.printf("%-28s %12d %12d %16d%n", "+ reverse CSR (on demand)", graph.nodeCount(), graph.edgeCount(),
+                graph.estimateReverseBytes());
+        if (legacyEdges > 0) {
+            System.out.printf("bytes per edge: map-of-maps %.1f, CSR %.1f%n",
+                    (double) legacyBytes / legacyEdges, (double) csrBytes / graph.edgeCount());
+        }
+    }
+}
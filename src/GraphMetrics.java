@@ -0,0 +1,333 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// 运行指标: 各操作的延迟直方图、读入吞吐量、图的规模和内存估算、每次最短路径查询出堆的结点数、桥接词索引命中率
+// 只有系统属性 graph.metrics=true 时才记录; 关闭时 ENABLED 是常量 false, 记录调用被 JIT 整体消除.
+// 可以注册为 JMX MBean(lab1:type=GraphMetrics,name=graph-N), 或定期打印文本;
+// 记录的同时提交 JFR 事件 lab1.GraphIngest / lab1.GraphQuery(需要在 JFR 录制配置中开启)
+public class GraphMetrics implements GraphMetricsMXBean {
+    public static final boolean ENABLED = Boolean.getBoolean("graph.metrics");
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    public enum Operation {
+        INGEST, LOAD_SNAPSHOT, BRIDGE_WORDS, GENERATE_TEXT, SHORTEST_PATHS, SHORTEST_PATHS_FROM, RANDOM_WALK, DOT_EXPORT;
+
+        final String label = name().toLowerCase().replace('_', '-');
+    }
+
+    @Name("lab1.GraphIngest")
+    @Label("Graph Ingest")
+    @Category("Lab1")
+    static final class IngestEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        @Label("Lines")
+        long lines;
+        @Label("Nodes")
+        int nodes;
+        @Label("Edges")
+        int edges;
+        @Label("Latency")
+        @Timespan
+        long latency;
+    }
+
+    @Name("lab1.GraphQuery")
+    @Label("Graph Query")
+    @Category("Lab1")
+    static final class QueryEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Latency")
+        @Timespan
+        long latency;
+    }
+
+    private final Supplier<WordGraph> graphs;
+    private final int id = INSTANCES.incrementAndGet();
+    private final LogHistogram[] latencies = new LogHistogram[Operation.values().length];
+    private final LongAdder ingestedBytes = new LongAdder();
+    private final LongAdder ingestedLines = new LongAdder();
+    private final LongAdder ingestNanos = new LongAdder();
+    private final LogHistogram settled = new LogHistogram();
+    private final LongAdder bridgeIndexHits = new LongAdder();
+    private final LongAdder bridgeIndexMisses = new LongAdder();
+    private volatile long bridgeIndexBytes;
+    private ObjectName objectName;
+    private ScheduledExecutorService dumper;
+
+    // graphs 给出当前发布的图版本, 用于统计结点数、边数和内存
+    public GraphMetrics(Supplier<WordGraph> graphs) {
+        this.graphs = graphs;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LogHistogram();
+        }
+    }
+
+    // 操作开始的时刻, 关闭时为 0
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    // 记录一次从 begin(由 start() 得到)开始的操作
+    public void record(Operation operation, long begin) {
+        if (!ENABLED) {
+            return;
+        }
+        long nanos = System.nanoTime() - begin;
+        latencies[operation.ordinal()].record(nanos);
+        QueryEvent event = new QueryEvent();
+        if (event.shouldCommit()) {
+            event.operation = operation.label;
+            event.latency = nanos;
+            event.commit();
+        }
+    }
+
+    // 记录一次读入(bytes 字节, lines 行), 读入后的图为 graph
+    public void ingested(Operation operation, long begin, long bytes, long lines, WordGraph graph) {
+        if (!ENABLED) {
+            return;
+        }
+        long nanos = System.nanoTime() - begin;
+        latencies[operation.ordinal()].record(nanos);
+        ingestedBytes.add(bytes);
+        ingestedLines.add(lines);
+        ingestNanos.add(nanos);
+        IngestEvent event = new IngestEvent();
+        if (event.shouldCommit()) {
+            event.operation = operation.label;
+            event.bytes = bytes;
+            event.lines = lines;
+            event.nodes = graph.nodeCount();
+            event.edges = graph.edgeCount();
+            event.latency = nanos;
+            event.commit();
+        }
+    }
+
+    // 一次最短路径搜索出堆的结点数
+    public void settled(int count) {
+        if (ENABLED) {
+            settled.record(count);
+        }
+    }
+
+    // 一次桥接词查询是否由索引直接回答
+    public void bridgeIndexLookup(boolean hit) {
+        if (ENABLED) {
+            (hit ? bridgeIndexHits : bridgeIndexMisses).increment();
+        }
+    }
+
+    // 当前桥接词索引的内存估算, 丢弃索引时为 0
+    public void bridgeIndexBytes(long bytes) {
+        bridgeIndexBytes = bytes;
+    }
+
+    public LogHistogram latency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return graphs.get().nodeCount();
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return graphs.get().edgeCount();
+    }
+
+    @Override
+    public long getGraphHeapBytes() {
+        return graphs.get().estimateHeapBytes();
+    }
+
+    @Override
+    public long getBridgeIndexHeapBytes() {
+        return bridgeIndexBytes;
+    }
+
+    @Override
+    public long getIngestedBytes() {
+        return ingestedBytes.sum();
+    }
+
+    @Override
+    public long getIngestedLines() {
+        return ingestedLines.sum();
+    }
+
+    @Override
+    public double getIngestBytesPerSecond() {
+        long nanos = ingestNanos.sum();
+        return nanos == 0 ? 0 : ingestedBytes.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public double getIngestLinesPerSecond() {
+        long nanos = ingestNanos.sum();
+        return nanos == 0 ? 0 : ingestedLines.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public long getBridgeIndexHits() {
+        return bridgeIndexHits.sum();
+    }
+
+    @Override
+    public long getBridgeIndexMisses() {
+        return bridgeIndexMisses.sum();
+    }
+
+    @Override
+    public double getBridgeIndexHitRate() {
+        long hits = bridgeIndexHits.sum();
+        long total = hits + bridgeIndexMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public double getSettledPerQueryMean() {
+        return settled.mean();
+    }
+
+    @Override
+    public long getSettledPerQueryP99() {
+        return settled.percentile(0.99);
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        return byOperation(LogHistogram::count);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP50Nanos() {
+        return byOperation(h -> h.percentile(0.5));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP99Nanos() {
+        return byOperation(h -> h.percentile(0.99));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyMaxNanos() {
+        return byOperation(LogHistogram::max);
+    }
+
+    private Map<String, Long> byOperation(ToLongFunction<LogHistogram> value) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            values.put(operation.label, value.applyAsLong(latencies[operation.ordinal()]));
+        }
+        return values;
+    }
+
+    @Override
+    public String dump() {
+        WordGraph graph = graphs.get();
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("graph: %d nodes, %d edges, graph heap %.1f MB, bridge index heap %.1f MB%n",
+                graph.nodeCount(), graph.edgeCount(), graph.estimateHeapBytes() / 1e6, bridgeIndexBytes / 1e6));
+        text.append(String.format("ingest: %d bytes, %d lines, %.1f MB/s, %.0f lines/s%n", getIngestedBytes(),
+                getIngestedLines(), getIngestBytesPerSecond() / 1e6, getIngestLinesPerSecond()));
+        text.append(String.format("bridge index: %d hits, %d misses (hit rate %.1f%%)%n", getBridgeIndexHits(),
+                getBridgeIndexMisses(), 100 * getBridgeIndexHitRate()));
+        text.append(String.format("settled per shortest-path query: %d queries, mean %.1f, p50 %d, p99 %d, max %d%n",
+                settled.count(), settled.mean(), settled.percentile(0.5), settled.percentile(0.99), settled.max()));
+        text.append(String.format("%-20s %10s %12s %12s %12s %12s%n", "operation", "count", "mean us", "p50 us",
+                "p99 us", "max us"));
+        for (Operation operation : Operation.values()) {
+            LogHistogram h = latencies[operation.ordinal()];
+            if (h.count() == 0) {
+                continue;
+            }
+            text.append(String.format("%-20s %10d %12.1f %12.1f %12.1f %12.1f%n", operation.label, h.count(),
+                    h.mean() / 1e3, h.percentile(0.5) / 1e3, h.percentile(0.99) / 1e3, h.max() / 1e3));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LogHistogram h : latencies) {
+            h.reset();
+        }
+        ingestedBytes.reset();
+        ingestedLines.reset();
+        ingestNanos.reset();
+        settled.reset();
+        bridgeIndexHits.reset();
+        bridgeIndexMisses.reset();
+    }
+
+    // 注册到平台 MBean 服务器, 返回注册的名字
+    public synchronized ObjectName register() throws JMException {
+        if (objectName == null) {
+            ObjectName name = new ObjectName("lab1:type=GraphMetrics,name=graph-" + id);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            objectName = name;
+        }
+        return objectName;
+    }
+
+    // 每隔 periodSeconds 秒把 dump() 打印到 out
+    public synchronized void startDump(long periodSeconds, PrintStream out) {
+        stopDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "graph-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> out.print(dump()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    // 停止打印并从 MBean 服务器注销
+    public synchronized void close() {
+        stopDump();
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                // 已被注销
+            }
+            objectName = null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.Map;
+
+// 通过 JMX 暴露的指标(见 GraphMetrics), 延迟单位为纳秒
+public interface GraphMetricsMXBean {
+    boolean isEnabled();
+
+    int getNodeCount();
+
+    int getEdgeCount();
+
+    // 冻结图的堆内存估算
+    long getGraphHeapBytes();
+
+    // 桥接词索引的堆内存估算, 没有索引时为 0
+    long getBridgeIndexHeapBytes();
+
+    long getIngestedBytes();
+
+    long getIngestedLines();
+
+    // 累计读入的字节数(行数)除以累计读入耗时
+    double getIngestBytesPerSecond();
+
+    double getIngestLinesPerSecond();
+
+    long getBridgeIndexHits();
+
+    long getBridgeIndexMisses();
+
+    double getBridgeIndexHitRate();
+
+    double getSettledPerQueryMean();
+
+    long getSettledPerQueryP99();
+
+    // 操作名 -> 次数 / 延迟分位数
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Long> getLatencyP50Nanos();
+
+    Map<String, Long> getLatencyP99Nanos();
+
+    Map<String, Long> getLatencyMaxNanos();
+
+    // 文本形式的全部指标
+    String dump();
+
+    void reset();
+}
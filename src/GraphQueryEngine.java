@@ -0,0 +1,390 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// 图查询接口: 桥接词、根据桥接词生成新文本、最短路径、随机游走, 返回结果对象而不是打印
+// 可以被多个线程同时调用: 每次查询开始时取一次当前的图版本(只读), 之后只使用该版本;
+// 随机数由调用者传入, 或使用调用线程自己的 ThreadLocalRandom;
+// 桥接词索引、别名表、地标和单源最短路径树缓存都按图版本懒加载, 图变化后自动重建;
+// 前三者构建代价高, 用双重检查加锁保证每个图版本只构建一次(并发的第一次查询等待同一次构建)
+public class GraphQueryEngine {
+    private final Supplier<WordGraph> graphs;
+    private final GraphMetrics metrics;
+    // 桥接词索引(可选)
+    private volatile boolean bridgeIndexEnabled = false;
+    private volatile long bridgeIndexMaxBytes = BridgeIndex.DEFAULT_MAX_BYTES;
+    private volatile int bridgeIndexHubFanout = BridgeIndex.DEFAULT_HUB_FANOUT;
+    private volatile BridgeIndex bridgeIndex;
+    private final Object bridgeIndexLock = new Object();
+    // 随机游走与桥接词选择的采样方式
+    private volatile SamplingMode samplingMode = SamplingMode.UNIFORM;
+    private volatile AliasSampler aliasSampler;
+    private final Object aliasSamplerLock = new Object();
+    // 最短路径的搜索方式
+    private volatile PathSearchMode pathSearchMode = PathSearchMode.DIJKSTRA;
+    private volatile int landmarkCount = 8;
+    private volatile Landmarks landmarks;
+    private final Object landmarksLock = new Object();
+    // 按源点缓存的单源最短路径树(LRU)
+    private final ShortestPathCache pathCache = new ShortestPathCache();
+
+    // 查询固定的图
+    public GraphQueryEngine(WordGraph graph) {
+        this(() -> graph);
+    }
+
+    // 每次查询都通过 graphs 取当前发布的图版本
+    public GraphQueryEngine(Supplier<WordGraph> graphs) {
+        this(graphs, new GraphMetrics(graphs));
+    }
+
+    // 查询的延迟等指标记录到 metrics 中
+    public GraphQueryEngine(Supplier<WordGraph> graphs, GraphMetrics metrics) {
+        this.graphs = graphs;
+        this.metrics = metrics;
+    }
+
+    // 查询时找不到的单词, 按参数顺序
+    private static List<String> missing(WordGraph graph, String... words) {
+        List<String> missing = new ArrayList<>(0);
+        for (String word : words) {
+            if (!graph.contains(word)) {
+                missing.add(word);
+            }
+        }
+        return missing;
+    }
+
+    public static final class BridgeWords {
+        public final String word1;
+        public final String word2;
+        // 图中没有的单词, 不为空时 bridges 为空
+        public final List<String> missingWords;
+        public final List<String> bridges;
+
+        BridgeWords(String word1, String word2, List<String> missingWords, List<String> bridges) {
+            this.word1 = word1;
+            this.word2 = word2;
+            this.missingWords = missingWords;
+            this.bridges = bridges;
+        }
+    }
+
+    public static final class ShortestPaths {
+        public final String startWord;
+        public final String endWord;
+        public final List<String> missingWords;
+        // 最短路径长度, 不可达或缺少单词时为 PredecessorDag.UNREACHABLE
+        public final int distance;
+        // 前 limit 条最短路径
+        public final List<List<String>> paths;
+        // 最短路径的总条数(饱和于 Long.MAX_VALUE)
+        public final long totalPaths;
+
+        ShortestPaths(String startWord, String endWord, List<String> missingWords, int distance,
+                      List<List<String>> paths, long totalPaths) {
+            this.startWord = startWord;
+            this.endWord = endWord;
+            this.missingWords = missingWords;
+            this.distance = distance;
+            this.paths = paths;
+            this.totalPaths = totalPaths;
+        }
+
+        public boolean isReachable() {
+            return distance != PredecessorDag.UNREACHABLE;
+        }
+    }
+
+    public static final class RandomWalk {
+        public final List<String> path;
+        // 是否因为走到重复的边而停止(否则是走到了没有出边的结点, 或达到步数上限)
+        public final boolean repeatedEdge;
+
+        RandomWalk(List<String> path, boolean repeatedEdge) {
+            this.path = path;
+            this.repeatedEdge = repeatedEdge;
+        }
+    }
+
+    public WordGraph graph() {
+        return graphs.get();
+    }
+
+    public GraphMetrics metrics() {
+        return metrics;
+    }
+
+    // 查询 word1 到 word2 的所有桥接词(按单词 ID 排序)
+    public BridgeWords bridgeWords(String word1, String word2) {
+        long begin = GraphMetrics.start();
+        WordGraph graph = graphs.get();
+        word1 = word1.toLowerCase();
+        word2 = word2.toLowerCase();
+        List<String> missing = missing(graph, word1, word2);
+        if (!missing.isEmpty()) {
+            return new BridgeWords(word1, word2, missing, Collections.emptyList());
+        }
+        int[] ids = bridgeWords(graph, graph.id(word1), graph.id(word2));
+        List<String> bridges = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            bridges.add(graph.word(id));
+        }
+        metrics.record(GraphMetrics.Operation.BRIDGE_WORDS, begin);
+        return new BridgeWords(word1, word2, missing, bridges);
+    }
+
+    // 查询 word1 到 word2 的所有桥接词 ID: 优先查索引, 否则对有序邻接表求交
+    int[] bridgeWords(WordGraph graph, int word1, int word2) {
+        if (!bridgeIndexEnabled) {
+            return BridgeIndex.intersect(graph, word1, word2);
+        }
+        BridgeIndex index = bridgeIndex(graph);
+        metrics.bridgeIndexLookup(index.isIndexed(word1));
+        return index.bridges(word1, word2);
+    }
+
+    // 当前图版本的桥接词索引, 图变化后重建
+    private BridgeIndex bridgeIndex(WordGraph graph) {
+        BridgeIndex index = bridgeIndex;
+        if (index != null && index.graph() == graph) {
+            return index;
+        }
+        synchronized (bridgeIndexLock) {
+            index = bridgeIndex;
+            if (index == null || index.graph() != graph) {
+                index = new BridgeIndex(graph, bridgeIndexMaxBytes, bridgeIndexHubFanout);
+                bridgeIndex = index;
+                metrics.bridgeIndexBytes(index.estimateHeapBytes());
+            }
+            return index;
+        }
+    }
+
+    public String generateNewText(String inputText) {
+        return generateNewText(inputText, ThreadLocalRandom.current());
+    }
+
+    // 在相邻两个单词之间插入一个随机选择的桥接词(如果有的话)
+    // 单词的切分与构图时相同(不产生空单词); 文本中没有单词时原样返回
+    public String generateNewText(String inputText, Random random) {
+        long begin = GraphMetrics.start();
+        WordGraph graph = graphs.get();
+        List<String> words = WordTokenizer.words(inputText);
+        if (words.isEmpty()) {
+            return inputText;
+        }
+        StringBuilder newText = new StringBuilder();
+
+        for (int i = 0; i < words.size() - 1; i++) {
+            newText.append(words.get(i)).append(" ");
+            String bridgeWord = pickBridgeWord(graph, words.get(i), words.get(i + 1), random);
+            if (bridgeWord != null) {
+                newText.append(bridgeWord).append(" ");
+            }
+        }
+        newText.append(words.get(words.size() - 1)); //加入文本中的最后一个单词
+
+        metrics.record(GraphMetrics.Operation.GENERATE_TEXT, begin);
+        return newText.toString();
+    }
+
+    // 随机选择一个桥接词, 没有时返回 null; 不生成候选列表(见 BridgeIndex.sample)
+    String pickBridgeWord(WordGraph graph, String word1, String word2, Random random) {
+        int id1 = graph.id(word1);
+        int id2 = graph.id(word2);
+        if (id1 < 0 || id2 < 0) {
+            return null;
+        }
+        boolean weighted = samplingMode == SamplingMode.WEIGHTED;
+        int word3;
+        if (bridgeIndexEnabled) {
+            BridgeIndex index = bridgeIndex(graph);
+            metrics.bridgeIndexLookup(index.isIndexed(id1));
+            word3 = index.sample(id1, id2, weighted, random);
+        } else {
+            word3 = BridgeIndex.sampleIntersection(graph, id1, id2, weighted, random);
+        }
+        return word3 < 0 ? null : graph.word(word3);
+    }
+
+    // 计算 startWord 到 endWord 的最短路径, 最多取 limit 条
+    public ShortestPaths shortestPaths(String startWord, String endWord, int limit) {
+        long begin = GraphMetrics.start();
+        WordGraph graph = graphs.get();
+        startWord = startWord.toLowerCase();
+        endWord = endWord.toLowerCase();
+        List<String> missing = missing(graph, startWord, endWord);
+        if (!missing.isEmpty()) {
+            return new ShortestPaths(startWord, endWord, missing, PredecessorDag.UNREACHABLE, Collections.emptyList(), 0);
+        }
+        int start = graph.id(startWord);
+        int end = graph.id(endWord);
+        // 同一源点已有单源结果时直接从中取出, 不再搜索
+        ShortestPathTree tree = pathCache.peek(graph, start);
+        PredecessorDag dag;
+        if (tree != null) {
+            dag = tree.dagTo(end);
+        } else {
+            dag = searchPaths(graph, start, end);
+            metrics.settled(dag.settled());
+        }
+
+        // 沿前驱 DAG 惰性枚举从起点到终点的最短路径, 最多 limit 条
+        List<List<String>> shortestPaths = new ArrayList<>();
+        ShortestPathEnumerator paths = dag.paths(limit);
+        while (paths.hasNext()) {
+            int[] path = paths.next();
+            List<String> words = new ArrayList<>(path.length);
+            for (int node : path) {
+                words.add(graph.word(node));
+            }
+            shortestPaths.add(words);
+        }
+        long total = shortestPaths.size() < limit ? shortestPaths.size() : dag.pathCount();
+        metrics.record(GraphMetrics.Operation.SHORTEST_PATHS, begin);
+        return new ShortestPaths(startWord, endWord, missing, dag.distance(), shortestPaths, total);
+    }
+
+    // 按当前的搜索方式计算 start 到 end 的最短路径前驱 DAG
+    private PredecessorDag searchPaths(WordGraph graph, int start, int end) {
+        switch (pathSearchMode) {
+            case BIDIRECTIONAL:
+                return new PointToPointSearch(graph).bidirectional(start, end);
+            case ALT:
+                return new PointToPointSearch(graph).alt(start, end, landmarks(graph));
+            default:
+                // 带下标堆的迪杰斯特拉, 终点距离确定后即停止
+                return new ShortestPathEngine(graph).search(start, end);
+        }
+    }
+
+    // 当前图版本的 ALT 地标, 图变化后重建
+    private Landmarks landmarks(WordGraph graph) {
+        Landmarks current = landmarks;
+        if (current != null && current.graph() == graph) {
+            return current;
+        }
+        synchronized (landmarksLock) {
+            current = landmarks;
+            if (current == null || current.graph() != graph) {
+                current = new Landmarks(graph, landmarkCount);
+                landmarks = current;
+            }
+            return current;
+        }
+    }
+
+    // graph 上以 start 为源点的单源最短路径树(经过 LRU 缓存)
+    public ShortestPathTree shortestPathTree(WordGraph graph, int start) {
+        return pathCache.get(graph, start);
+    }
+
+    public RandomWalk randomWalk(String startWord, long maxSteps) {
+        return randomWalk(startWord, maxSteps, ThreadLocalRandom.current());
+    }
+
+    // 从 startWord(为 null 时随机选择)出发随机游走, 直到第一次走到重复的边(该边的终点也包括在内)、
+    // 走到没有出边的结点或走了 maxSteps 步; 图为空或没有 startWord 时返回 null
+    public RandomWalk randomWalk(String startWord, long maxSteps, Random random) {
+        long begin = GraphMetrics.start();
+        WordGraph graph = graphs.get();
+        if (graph.isEmpty()) {
+            return null;
+        }
+        int current = startWord == null ? random.nextInt(graph.nodeCount()) : graph.id(startWord.toLowerCase());
+        if (current < 0) {
+            return null;
+        }
+        EdgeVisitSet visited = new EdgeVisitSet(graph.edgeCount());
+        List<String> path = new ArrayList<>();
+        path.add(graph.word(current));
+        for (long step = 0; step < maxSteps; step++) {
+            int edge = nextEdge(graph, current, random);
+            if (edge < 0) {
+                break;
+            }
+            current = graph.target(edge);
+            path.add(graph.word(current));
+            if (!visited.add(edge)) {
+                metrics.record(GraphMetrics.Operation.RANDOM_WALK, begin);
+                return new RandomWalk(path, true);
+            }
+        }
+        metrics.record(GraphMetrics.Operation.RANDOM_WALK, begin);
+        return new RandomWalk(path, false);
+    }
+
+    // 按当前的采样方式选择结点 u 的一条出边, 没有出边时返回 -1
+    int nextEdge(WordGraph graph, int u, Random random) {
+        if (samplingMode == SamplingMode.UNIFORM) {
+            return AliasSampler.uniformEdge(graph, u, random);
+        }
+        return aliasSampler(graph).sampleEdge(u, random);
+    }
+
+    // 加权采样使用的别名表, 图变化后重建; 等概率采样时返回 null
+    AliasSampler sampler(WordGraph graph) {
+        return samplingMode == SamplingMode.WEIGHTED ? aliasSampler(graph) : null;
+    }
+
+    private AliasSampler aliasSampler(WordGraph graph) {
+        AliasSampler sampler = aliasSampler;
+        if (sampler != null && sampler.graph() == graph) {
+            return sampler;
+        }
+        synchronized (aliasSamplerLock) {
+            sampler = aliasSampler;
+            if (sampler == null || sampler.graph() != graph) {
+                sampler = new AliasSampler(graph);
+                aliasSampler = sampler;
+            }
+            return sampler;
+        }
+    }
+
+    // 开启桥接词索引, maxBytes 为索引占用内存的上限, hubFanout 为枢纽词的两跳扇出阈值
+    public void enableBridgeIndex(long maxBytes, int hubFanout) {
+        bridgeIndexMaxBytes = maxBytes;
+        bridgeIndexHubFanout = hubFanout;
+        bridgeIndex = null;
+        metrics.bridgeIndexBytes(0);
+        bridgeIndexEnabled = true;
+    }
+
+    public void disableBridgeIndex() {
+        bridgeIndexEnabled = false;
+        bridgeIndex = null;
+        metrics.bridgeIndexBytes(0);
+    }
+
+    public void setSamplingMode(SamplingMode samplingMode) {
+        this.samplingMode = samplingMode;
+    }
+
+    public SamplingMode samplingMode() {
+        return samplingMode;
+    }
+
+    public void setPathSearchMode(PathSearchMode pathSearchMode) {
+        this.pathSearchMode = pathSearchMode;
+    }
+
+    // 设置 ALT 模式使用的地标个数
+    public void setLandmarkCount(int landmarkCount) {
+        this.landmarkCount = landmarkCount;
+        landmarks = null;
+    }
+
+    // 丢弃基于旧图版本的索引和缓存(图版本变化时调用, 可以提前释放内存)
+    public void invalidate() {
+        bridgeIndex = null;
+        metrics.bridgeIndexBytes(0);
+        aliasSampler = null;
+        landmarks = null;
+        pathCache.clear();
+    }
+}
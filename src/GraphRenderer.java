@@ -0,0 +1,282 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 后台调用 Graphviz 把 DOT 渲染为 PNG
+// 渲染任务在有界线程池中排队(队列满时直接失败); DOT 内容边生成边计算 SHA-256 并写入缓存目录中的临时文件,
+// 不在堆中保留整个 DOT, 没有命中缓存时再把该文件送入 dot 的标准输入(已有的 DOT 文件直接计算摘要并送入);
+// dot 的标准输入、标准输出(PNG)、标准错误分别由独立线程同时读写, 不会因为管道写满而互相等待;
+// 每个任务有超时时间, 超时后强制结束进程. 以 DOT 内容的 SHA-256 为键把 PNG 缓存在 cacheDir 中,
+// 内容相同的图不再重复渲染
+public class GraphRenderer implements AutoCloseable {
+    public static final long DEFAULT_TIMEOUT_MILLIS = 60_000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+    // 标准错误最多保留这么多字符
+    private static final int MAX_STDERR_CHARS = 1 << 16;
+
+    // 生成 DOT 内容
+    public interface DotSource {
+        void write(OutputStream out) throws IOException;
+    }
+
+    // 渲染结果; dot 以非零状态退出时 exitCode 不为 0, image 不会被写入(也不会缓存), messages 为 dot 的标准错误
+    public static final class Result {
+        public final Path image;
+        // 是否直接使用了缓存的 PNG
+        public final boolean cached;
+        public final long elapsedNanos;
+        public final int exitCode;
+        // dot 的标准错误(最多 MAX_STDERR_CHARS 个字符), 使用缓存时为空
+        public final String messages;
+
+        Result(Path image, boolean cached, long elapsedNanos, int exitCode, String messages) {
+            this.image = image;
+            this.cached = cached;
+            this.elapsedNanos = elapsedNanos;
+            this.exitCode = exitCode;
+            this.messages = messages;
+        }
+
+        public boolean succeeded() {
+            return exitCode == 0;
+        }
+
+        @Override
+        public String toString() {
+            if (!succeeded()) {
+                return String.format("%s (dot exited with %d: %s)", image, exitCode, messages.trim());
+            }
+            return String.format("%s (%s, %.1f ms)", image, cached ? "cached" : "rendered", elapsedNanos / 1e6);
+        }
+    }
+
+    private final List<String> command;
+    private final long timeoutMillis;
+    private final Path cacheDir;
+    private final ThreadPoolExecutor jobs;
+    // 读写 dot 进程管道的线程
+    private final ExecutorService pipes;
+
+    // command 为 dot 命令及其额外参数(会再追加 -Tpng)
+    public GraphRenderer(List<String> command, int workers, int queueCapacity, long timeoutMillis, Path cacheDir) {
+        this.command = new ArrayList<>(command);
+        this.timeoutMillis = timeoutMillis;
+        this.cacheDir = cacheDir;
+        workers = Math.max(1, workers);
+        this.jobs = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), daemonThreads("graphviz-render-"));
+        this.pipes = Executors.newCachedThreadPool(daemonThreads("graphviz-pipe-"));
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // 提交渲染任务, source 在渲染线程中被调用, 因此它读取的数据在任务完成前不能被修改
+    public CompletableFuture<Result> render(DotSource source, Path image) {
+        return submit(() -> renderNow(source, image));
+    }
+
+    // 渲染已有的 DOT 文件
+    public CompletableFuture<Result> render(Path dotFile, Path image) {
+        return submit(() -> renderFile(dotFile, sha256(dotFile), image, System.nanoTime()));
+    }
+
+    private CompletableFuture<Result> submit(Callable<Result> task) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        try {
+            jobs.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new RejectedExecutionException(
+                    "render queue is full (" + jobs.getQueue().size() + " jobs waiting)", e));
+        }
+        return future;
+    }
+
+    // 一遍写出 DOT: 同时写入临时文件和计算摘要
+    private Result renderNow(DotSource source, Path image) throws Exception {
+        long begin = System.nanoTime();
+        Files.createDirectories(cacheDir);
+        Path dotFile = Files.createTempFile(cacheDir, "render", ".dot");
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream out = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(dotFile), 1 << 16), digest)) {
+                source.write(out);
+            }
+            return renderFile(dotFile, hex(digest.digest()), image, begin);
+        } finally {
+            Files.deleteIfExists(dotFile);
+        }
+    }
+
+    // key 为 dotFile 内容的 SHA-256
+    private Result renderFile(Path dotFile, String key, Path image, long begin) throws Exception {
+        Files.createDirectories(cacheDir);
+        Path cached = cacheDir.resolve(key + ".png");
+        boolean hit = Files.exists(cached);
+        String messages = "";
+        if (!hit) {
+            Path partial = Files.createTempFile(cacheDir, "render", ".part");
+            try {
+                StringBuilder stderr = new StringBuilder();
+                int exitCode = runDot(dotFile, partial, stderr);
+                messages = stderr.toString();
+                if (exitCode != 0) {
+                    return new Result(image, false, System.nanoTime() - begin, exitCode, messages);
+                }
+                try {
+                    Files.move(partial, cached, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(partial, cached, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+        }
+        Path parent = image.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.copy(cached, image, StandardCopyOption.REPLACE_EXISTING);
+        return new Result(image, hit, System.nanoTime() - begin, 0, messages);
+    }
+
+    // 运行 dot, 把 PNG 写到 output, 标准错误追加到 stderr, 返回退出码
+    private int runDot(Path dotFile, Path output, StringBuilder stderr) throws IOException, InterruptedException, TimeoutException {
+        List<String> cmd = new ArrayList<>(command);
+        cmd.add("-Tpng");
+        Process process = new ProcessBuilder(cmd).start();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Future<?> stdin = pipes.submit(() -> {
+            try (OutputStream in = process.getOutputStream()) {
+                Files.copy(dotFile, in);
+            } catch (IOException e) {
+                // dot 提前退出时管道已关闭, 以退出码为准
+            }
+        });
+        Future<?> stdout = pipes.submit(() -> {
+            try (InputStream out = process.getInputStream()) {
+                Files.copy(out, output, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Future<?> errors = pipes.submit(() -> {
+            try (InputStream err = process.getErrorStream()) {
+                byte[] chunk = new byte[4096];
+                int n;
+                while ((n = err.read(chunk)) > 0) {
+                    if (stderr.length() < MAX_STDERR_CHARS) {
+                        stderr.append(new String(chunk, 0, n, StandardCharsets.UTF_8));
+                    }
+                }
+            } catch (IOException e) {
+                // 进程被结束时读取中断, 忽略
+            }
+        });
+        try {
+            if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException(String.join(" ", cmd) + " timed out after " + timeoutMillis + " ms");
+            }
+            // 进程退出后管道很快读完, 但仍然受总超时限制
+            for (Future<?> pipe : List.of(stdin, stdout, errors)) {
+                pipe.get(Math.max(1, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            process.destroyForcibly();
+            stdin.cancel(true);
+            stdout.cancel(true);
+            errors.cancel(true);
+        }
+        // 读标准错误的线程已结束(Future.get 保证可见性)
+        return process.exitValue();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 分块读取文件计算 SHA-256
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] chunk = new byte[1 << 16];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                digest.update(chunk, 0, n);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static String hex(byte[] digest) {
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    // 排队和正在执行的任务个数
+    public int pending() {
+        return jobs.getQueue().size() + jobs.getActiveCount();
+    }
+
+    // 不再接受新任务, 等待已提交的任务完成(最多等一个任务的超时时间)
+    @Override
+    public void close() {
+        jobs.shutdown();
+        try {
+            jobs.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        jobs.shutdownNow();
+        pipes.shutdownNow();
+    }
+}
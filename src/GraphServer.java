@@ -0,0 +1,337 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.JMException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// 以 HTTP 服务的形式提供查询, 结果为 JSON:
+//   GET  /bridge-words?word1=..&word2=..
+//   GET  /generate-text?text=..
+//   GET  /shortest-path?start=..&end=..[&limit=5]      limit 不超过 MAX_PATH_LIMIT
+//   GET  /random-walk[?start=..][&maxSteps=10000]
+//   POST /batch?op=bridge-words|shortest-path[&limit=5]  请求体每行一对单词(空白分隔), 返回 JSON 数组
+// 请求在虚拟线程上处理(运行时支持时), 否则使用固定大小的线程池; 查询都交给 GraphQueryEngine, 不加锁
+// 接口没有认证, 默认只监听本机回环地址; 需要从其他机器访问时显式指定监听地址(如 0.0.0.0)
+// 用法: java [-Dgraph.metrics=true] GraphServer <文本文件或 .wgs 快照> [端口] [线程数] [监听地址]
+public class GraphServer implements AutoCloseable {
+    public static final int DEFAULT_PATH_LIMIT = 5;
+    // 每个单词对最多列出的最短路径条数(等长路径的条数可能随路径长度指数增长), 由系统属性 graph.server.maxPathLimit 指定
+    public static final int MAX_PATH_LIMIT = Math.max(1, Integer.getInteger("graph.server.maxPathLimit", 100));
+    public static final long DEFAULT_WALK_STEPS = 10_000;
+    // 一次批量请求最多包含的单词对数
+    public static final int MAX_BATCH = 100_000;
+
+    private final GraphQueryEngine queries;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // 只监听本机回环地址; port 为 0 时使用任意空闲端口, threads 只在不支持虚拟线程时使用
+    public GraphServer(GraphQueryEngine queries, int port, int threads) throws IOException {
+        this(queries, InetAddress.getLoopbackAddress(), port, threads);
+    }
+
+    // 监听 host 上的 port
+    public GraphServer(GraphQueryEngine queries, InetAddress host, int port, int threads) throws IOException {
+        this.queries = queries;
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 1024);
+        this.executor = requestExecutor(threads);
+        server.setExecutor(executor);
+        server.createContext("/bridge-words", handler(this::bridgeWords));
+        server.createContext("/generate-text", handler(this::generateText));
+        server.createContext("/shortest-path", handler(this::shortestPath));
+        server.createContext("/random-walk", handler(this::randomWalk));
+        server.createContext("/batch", handler(this::batch));
+    }
+
+    // 每个请求一个虚拟线程(Java 21 起), 通过反射调用以便在更早的运行时上编译和运行
+    static ExecutorService requestExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+                Thread thread = new Thread(runnable, "graph-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public GraphServer start() {
+        server.start();
+        return this;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    // 服务的根地址, 如 http://127.0.0.1:8080
+    public String url() {
+        InetAddress host = server.getAddress().getAddress();
+        String address = host.getHostAddress();
+        return "http://" + (host instanceof Inet6Address ? "[" + address + "]" : address) + ":" + port();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 请求参数错误
+    @SuppressWarnings("serial") // 只在处理请求时抛出和捕获, 不会被序列化
+    private static final class BadRequest extends Exception {
+        BadRequest(String message) {
+            super(message);
+        }
+    }
+
+    private interface Endpoint {
+        // 把 JSON 结果写进 json
+        void handle(HttpExchange exchange, Map<String, String> params, StringBuilder json) throws IOException, BadRequest;
+    }
+
+    private static HttpHandler handler(Endpoint endpoint) {
+        return exchange -> {
+            StringBuilder json = new StringBuilder(256);
+            int status = 200;
+            try {
+                endpoint.handle(exchange, query(exchange), json);
+            } catch (BadRequest e) {
+                status = 400;
+                json.setLength(0);
+                json.append("{\"error\":");
+                string(json, e.getMessage());
+                json.append('}');
+            } catch (RuntimeException e) {
+                status = 500;
+                json.setLength(0);
+                json.append("{\"error\":");
+                string(json, e.toString());
+                json.append('}');
+            }
+            byte[] body = json.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        };
+    }
+
+    private void bridgeWords(HttpExchange exchange, Map<String, String> params, StringBuilder json) throws BadRequest {
+        bridgeWords(json, required(params, "word1"), required(params, "word2"));
+    }
+
+    private void bridgeWords(StringBuilder json, String word1, String word2) {
+        GraphQueryEngine.BridgeWords result = queries.bridgeWords(word1, word2);
+        json.append("{\"word1\":");
+        string(json, result.word1);
+        json.append(",\"word2\":");
+        string(json, result.word2);
+        json.append(",\"missing\":");
+        strings(json, result.missingWords);
+        json.append(",\"bridges\":");
+        strings(json, result.bridges);
+        json.append('}');
+    }
+
+    private void generateText(HttpExchange exchange, Map<String, String> params, StringBuilder json) throws BadRequest {
+        String text = required(params, "text");
+        if (WordTokenizer.words(text).isEmpty()) {
+            throw new BadRequest("no words in text");
+        }
+        json.append("{\"text\":");
+        string(json, queries.generateNewText(text));
+        json.append('}');
+    }
+
+    private void shortestPath(HttpExchange exchange, Map<String, String> params, StringBuilder json) throws BadRequest {
+        shortestPath(json, required(params, "start"), required(params, "end"), limit(params));
+    }
+
+    private void shortestPath(StringBuilder json, String start, String end, int limit) {
+        GraphQueryEngine.ShortestPaths result = queries.shortestPaths(start, end, limit);
+        json.append("{\"start\":");
+        string(json, result.startWord);
+        json.append(",\"end\":");
+        string(json, result.endWord);
+        json.append(",\"missing\":");
+        strings(json, result.missingWords);
+        json.append(",\"distance\":");
+        if (result.isReachable()) {
+            json.append(result.distance);
+        } else {
+            json.append("null");
+        }
+        json.append(",\"totalPaths\":").append(result.totalPaths).append(",\"paths\":[");
+        for (int i = 0; i < result.paths.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            strings(json, result.paths.get(i));
+        }
+        json.append("]}");
+    }
+
+    private void randomWalk(HttpExchange exchange, Map<String, String> params, StringBuilder json) throws BadRequest {
+        long maxSteps = number(params, "maxSteps", DEFAULT_WALK_STEPS);
+        GraphQueryEngine.RandomWalk result = queries.randomWalk(params.get("start"), maxSteps);
+        if (result == null) {
+            throw new BadRequest(params.containsKey("start") ? "no \"" + params.get("start") + "\" in the graph"
+                    : "the graph is empty");
+        }
+        json.append("{\"path\":");
+        strings(json, result.path);
+        json.append(",\"repeatedEdge\":").append(result.repeatedEdge).append('}');
+    }
+
+    // 请求体每行一对单词, 按行的顺序返回结果数组
+    private void batch(HttpExchange exchange, Map<String, String> params, StringBuilder json) throws IOException, BadRequest {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            throw new BadRequest("batch requests must be POST");
+        }
+        String op = required(params, "op");
+        if (!op.equals("bridge-words") && !op.equals("shortest-path")) {
+            throw new BadRequest("unknown batch op: " + op);
+        }
+        int limit = limit(params);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+        json.append('[');
+        int count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] pair = line.split("\\s+");
+            if (pair.length != 2) {
+                throw new BadRequest("expected two words on a line: " + line);
+            }
+            if (++count > MAX_BATCH) {
+                throw new BadRequest("batch larger than " + MAX_BATCH + " pairs");
+            }
+            if (count > 1) {
+                json.append(',');
+            }
+            if (op.equals("bridge-words")) {
+                bridgeWords(json, pair[0], pair[1]);
+            } else {
+                shortestPath(json, pair[0], pair[1], limit);
+            }
+        }
+        json.append(']');
+    }
+
+    private static int limit(Map<String, String> params) throws BadRequest {
+        long limit = number(params, "limit", DEFAULT_PATH_LIMIT);
+        if (limit < 1 || limit > MAX_PATH_LIMIT) {
+            throw new BadRequest("limit out of range [1, " + MAX_PATH_LIMIT + "]: " + limit);
+        }
+        return (int) limit;
+    }
+
+    private static String required(Map<String, String> params, String name) throws BadRequest {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new BadRequest("missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static long number(Map<String, String> params, String name, long defaultValue) throws BadRequest {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequest("not a number: " + name + "=" + value);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void strings(StringBuilder json, List<String> values) {
+        json.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            string(json, values.get(i));
+        }
+        json.append(']');
+    }
+
+    // JSON 字符串(转义引号、反斜杠和控制字符)
+    static void string(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    public static void main(String[] args) throws IOException, JMException {
+        if (args.length < 1) {
+            System.out.println("Usage: java GraphServer <text file or .wgs snapshot> [port] [threads] [bind address]");
+            return;
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors() * 4;
+        InetAddress host = args.length > 3 ? InetAddress.getByName(args[3]) : InetAddress.getLoopbackAddress();
+        TextToDotGraph graph = new TextToDotGraph();
+        if (args[0].endsWith(".wgs")) {
+            graph.loadSnapshot(args[0]);
+        } else {
+            graph.readTxt(args[0]);
+        }
+        if (GraphMetrics.ENABLED) {
+            graph.metrics().register();
+        }
+        GraphServer server = new GraphServer(graph.queries(), host, port, threads).start();
+        System.out.println("Serving " + graph.wordGraph().nodeCount() + " words on " + server.url() + "/");
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// 冻结图的二进制快照, 用于跳过文本解析直接载入图
+// 文件格式(小端):
+//   头部 32 字节: 魔数 "WGSN", 版本号, 结点数 n, 边数 m, 根结点 ID, 最后一个单词 ID(没有为 -1), 单词字节数 b, 保留
+//   int[n + 1] 单词偏移, byte[b] 单词(UTF-8, 补齐到 4 字节), int[n + 1] CSR 行偏移, int[m] 目标结点, int[m] 边权
+//   末尾 8 字节: 之前所有字节的 CRC32
+// 读写都通过 FileChannel.map 进行, 单个快照最大 2GB(整个文件作为一个映射, 更大的文件在载入时直接拒绝)
+// 载入时把各段成批复制到堆上的数组并重建单词字典(反向邻接表在第一次使用时才生成), 不是在映射上原地查询;
+// 因此载入时间与文件大小成正比, 但省去了分词和边权累加
+public final class GraphSnapshot {
+    public static final int MAGIC = 0x4E534757;
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private final WordGraph graph;
+    private final String rootWord;
+    private final int lastWord;
+
+    public GraphSnapshot(WordGraph graph, String rootWord, int lastWord) {
+        this.graph = graph;
+        this.rootWord = rootWord;
+        this.lastWord = lastWord;
+    }
+
+    public WordGraph graph() {
+        return graph;
+    }
+
+    public String rootWord() {
+        return rootWord;
+    }
+
+    // 文本中最后一个单词的 ID, 继续读入文本时要与它相连
+    public int lastWord() {
+        return lastWord;
+    }
+
+    public void save(String file) throws IOException {
+        int n = graph.nodeCount();
+        int m = graph.edgeCount();
+        byte[][] words = new byte[n][];
+        long wordBytes = 0;
+        for (int id = 0; id < n; id++) {
+            words[id] = graph.word(id).getBytes(StandardCharsets.UTF_8);
+            wordBytes += words[id].length;
+        }
+        long size = HEADER_BYTES + 4L * (n + 1) + align(wordBytes) + 4L * (n + 1) + 8L * m + 8;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("graph too large for a snapshot: " + size + " bytes");
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m)
+                    .putInt(rootWord != null ? graph.id(rootWord) : -1).putInt(lastWord)
+                    .putInt((int) wordBytes).putInt(0);
+            int offset = 0;
+            buffer.putInt(offset);
+            for (byte[] word : words) {
+                offset += word.length;
+                buffer.putInt(offset);
+            }
+            for (byte[] word : words) {
+                buffer.put(word);
+            }
+            buffer.position((int) (buffer.position() + align(wordBytes) - wordBytes));
+            for (int u = 0; u <= n; u++) {
+                buffer.putInt(u < n ? graph.edgeStart(u) : m);
+            }
+            for (int e = 0; e < m; e++) {
+                buffer.putInt(graph.target(e));
+            }
+            for (int e = 0; e < m; e++) {
+                buffer.putInt(graph.weight(e));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit((int) size - 8));
+            buffer.putLong(crc.getValue());
+            buffer.force();
+        }
+    }
+
+    public static GraphSnapshot load(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 8) {
+                throw new IOException("not a graph snapshot: " + file);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("snapshot larger than 2 GB is not supported (" + size + " bytes): " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a graph snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version " + version + ": " + file);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit((int) size - 8));
+            if (crc.getValue() != buffer.getLong((int) size - 8)) {
+                throw new IOException("snapshot checksum mismatch: " + file);
+            }
+            int n = buffer.getInt();
+            int m = buffer.getInt();
+            int root = buffer.getInt();
+            int last = buffer.getInt();
+            int wordBytes = buffer.getInt();
+            buffer.getInt();
+            if (n < 0 || m < 0 || wordBytes < 0
+                    || size != HEADER_BYTES + 4L * (n + 1) + align(wordBytes) + 4L * (n + 1) + 8L * m + 8) {
+                throw new IOException("corrupt snapshot header: " + file);
+            }
+            int[] wordOffsets = ints(buffer, n + 1);
+            byte[] text = new byte[wordBytes];
+            buffer.get(text);
+            buffer.position((int) (buffer.position() + align(wordBytes) - wordBytes));
+            int[] offsets = ints(buffer, n + 1);
+            int[] targets = ints(buffer, m);
+            int[] weights = ints(buffer, m);
+
+            validate(file, n, m, root, last, wordOffsets, wordBytes, offsets, targets, weights);
+
+            WordDictionary dictionary = new WordDictionary(n);
+            for (int id = 0; id < n; id++) {
+                String word = new String(text, wordOffsets[id], wordOffsets[id + 1] - wordOffsets[id], StandardCharsets.UTF_8);
+                if (dictionary.intern(word) != id) {
+                    throw new IOException("duplicate word in snapshot: " + word);
+                }
+            }
+            WordGraph graph = new WordGraph(dictionary, offsets, targets, weights);
+            return new GraphSnapshot(graph, root >= 0 ? graph.word(root) : null, last);
+        }
+    }
+
+    // 校验和只能发现损坏, 不能发现写出时就不一致的内容; 构造图之前检查结构, 避免之后在查询中越界
+    private static void validate(String file, int n, int m, int root, int last, int[] wordOffsets, int wordBytes,
+                                 int[] offsets, int[] targets, int[] weights) throws IOException {
+        if (root < -1 || root >= n || last < -1 || last >= n) {
+            throw new IOException("corrupt snapshot: root " + root + " or last word " + last + " out of range: " + file);
+        }
+        if (wordOffsets[0] != 0 || wordOffsets[n] != wordBytes) {
+            throw new IOException("corrupt snapshot: word offsets do not cover the word bytes: " + file);
+        }
+        if (offsets[0] != 0 || offsets[n] != m) {
+            throw new IOException("corrupt snapshot: row offsets do not cover the edges: " + file);
+        }
+        for (int u = 0; u < n; u++) {
+            if (wordOffsets[u + 1] < wordOffsets[u]) {
+                throw new IOException("corrupt snapshot: word offsets decrease at " + u + ": " + file);
+            }
+            if (offsets[u + 1] < offsets[u]) {
+                throw new IOException("corrupt snapshot: row offsets decrease at " + u + ": " + file);
+            }
+            // 每行的目标结点严格升序(findEdge 依赖二分查找)
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                if (targets[e] < 0 || targets[e] >= n || e > offsets[u] && targets[e] <= targets[e - 1]) {
+                    throw new IOException("corrupt snapshot: bad target " + targets[e] + " at edge " + e + ": " + file);
+                }
+                if (weights[e] <= 0) {
+                    throw new IOException("corrupt snapshot: non-positive weight at edge " + e + ": " + file);
+                }
+            }
+        }
+    }
+
+    private static int[] ints(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 3) & ~3L;
+    }
+}
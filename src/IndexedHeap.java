@@ -0,0 +1,127 @@
+import java.util.Arrays;
+
+// 带下标的 d 叉最小堆, 元素为结点 ID, 键为 keys[node]
+// 支持 decrease-key, 因此每个结点在堆中至多出现一次, 不会有过期元素
+public class IndexedHeap {
+    private static final int ARITY = 4;
+
+    private int[] heap;
+    // 结点在堆中的位置, 不在堆中为 -1
+    private int[] position;
+    private int[] keys;
+    private int size;
+
+    public IndexedHeap(int capacity) {
+        heap = new int[Math.max(capacity, 1)];
+        position = new int[Math.max(capacity, 1)];
+        Arrays.fill(position, -1);
+    }
+
+    // 结点数变化时重新分配
+    public void ensureCapacity(int capacity) {
+        if (capacity > position.length) {
+            int old = position.length;
+            heap = Arrays.copyOf(heap, capacity);
+            position = Arrays.copyOf(position, capacity);
+            Arrays.fill(position, old, capacity, -1);
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int node) {
+        return position[node] >= 0;
+    }
+
+    public int peek() {
+        return heap[0];
+    }
+
+    // 设置键的数组, 调用方保证在下一次 clear() 之前不替换
+    public void setKeys(int[] keys) {
+        this.keys = keys;
+    }
+
+    // 插入结点, 或在 keys[node] 变小后调整其位置
+    public void push(int node) {
+        int index = position[node];
+        if (index < 0) {
+            index = size++;
+            heap[index] = node;
+            position[node] = index;
+        }
+        siftUp(index);
+    }
+
+    public int poll() {
+        int top = heap[0];
+        position[top] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    // 清空堆, 只重置仍在堆中的结点
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int index) {
+        int node = heap[index];
+        int key = keys[node];
+        while (index > 0) {
+            int parent = (index - 1) / ARITY;
+            int parentNode = heap[parent];
+            if (keys[parentNode] <= key) {
+                break;
+            }
+            heap[index] = parentNode;
+            position[parentNode] = index;
+            index = parent;
+        }
+        heap[index] = node;
+        position[node] = index;
+    }
+
+    private void siftDown(int index) {
+        int node = heap[index];
+        int key = keys[node];
+        while (true) {
+            int first = index * ARITY + 1;
+            if (first >= size) {
+                break;
+            }
+            int best = first;
+            int bestKey = keys[heap[first]];
+            int end = Math.min(first + ARITY, size);
+            for (int child = first + 1; child < end; child++) {
+                int childKey = keys[heap[child]];
+                if (childKey < bestKey) {
+                    best = child;
+                    bestKey = childKey;
+                }
+            }
+            if (bestKey >= key) {
+                break;
+            }
+            heap[index] = heap[best];
+            position[heap[index]] = index;
+            index = best;
+        }
+        heap[index] = node;
+        position[node] = index;
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.Arrays;
+
+// ALT 启发式使用的地标: 预先计算每个地标 L 到所有结点的距离 d(L, v) 以及所有结点到 L 的距离 d(v, L)
+// 由三角不等式, d(v, t) >= max(d(L, t) - d(L, v), d(v, L) - d(t, L)), 这是一致(consistent)的下界
+public class Landmarks {
+    private static final int UNREACHABLE = PredecessorDag.UNREACHABLE;
+
+    private final WordGraph graph;
+    private final int[] landmarks;
+    // fromLandmark[i][v] = d(L_i, v), toLandmark[i][v] = d(v, L_i)
+    private final int[][] fromLandmark;
+    private final int[][] toLandmark;
+
+    // 选取 count 个地标: 第一个为出度最大的结点, 之后每次选离已选地标最远的结点
+    public Landmarks(WordGraph graph, int count) {
+        this.graph = graph;
+        int n = graph.nodeCount();
+        count = Math.min(count, n);
+        int[] chosen = new int[count];
+        int[][] from = new int[count][];
+        int[][] to = new int[count][];
+        // 每个结点到已选地标的最小距离(两个方向取小)
+        int[] nearest = new int[n];
+        Arrays.fill(nearest, UNREACHABLE);
+        int next = 0;
+        for (int u = 1; u < n; u++) {
+            if (graph.outDegree(u) > graph.outDegree(next)) {
+                next = u;
+            }
+        }
+        int size = 0;
+        while (size < count && next >= 0) {
+            chosen[size] = next;
+            from[size] = distances(graph, next, false);
+            to[size] = distances(graph, next, true);
+            next = -1;
+            int uncovered = -1;
+            for (int v = 0; v < n; v++) {
+                nearest[v] = Math.min(nearest[v], Math.min(from[size][v], to[size][v]));
+                if (nearest[v] == UNREACHABLE) {
+                    uncovered = v;
+                } else if (nearest[v] > 0 && (next < 0 || nearest[v] > nearest[next])) {
+                    next = v;
+                }
+            }
+            // 优先照顾与已选地标都不连通的部分
+            if (uncovered >= 0) {
+                next = uncovered;
+            }
+            size++;
+        }
+        landmarks = Arrays.copyOf(chosen, size);
+        fromLandmark = Arrays.copyOf(from, size);
+        toLandmark = Arrays.copyOf(to, size);
+    }
+
+    // 单源(reverse 为 true 时沿入边, 即单汇)的全图最短距离
+    static int[] distances(WordGraph graph, int source, boolean reverse) {
+        int n = graph.nodeCount();
+        int[] dist = new int[n];
+        Arrays.fill(dist, UNREACHABLE);
+        boolean[] settled = new boolean[n];
+        IndexedHeap heap = new IndexedHeap(n);
+        heap.setKeys(dist);
+        dist[source] = 0;
+        heap.push(source);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settled[u] = true;
+            int start = reverse ? graph.inEdgeStart(u) : graph.edgeStart(u);
+            int end = reverse ? graph.inEdgeEnd(u) : graph.edgeEnd(u);
+            for (int e = start; e < end; e++) {
+                int v = reverse ? graph.source(e) : graph.target(e);
+                if (settled[v]) {
+                    continue;
+                }
+                int newDistance = dist[u] + (reverse ? graph.inWeight(e) : graph.weight(e));
+                if (newDistance < dist[v]) {
+                    dist[v] = newDistance;
+                    heap.push(v);
+                }
+            }
+        }
+        return dist;
+    }
+
+    public WordGraph graph() {
+        return graph;
+    }
+
+    public int count() {
+        return landmarks.length;
+    }
+
+    // v 到 target 的距离下界; v 无法到达 target 时返回 UNREACHABLE
+    public int lowerBound(int v, int target) {
+        int bound = 0;
+        for (int i = 0; i < landmarks.length; i++) {
+            int[] from = fromLandmark[i];
+            int[] to = toLandmark[i];
+            if (from[target] != UNREACHABLE && from[v] != UNREACHABLE) {
+                bound = Math.max(bound, from[target] - from[v]);
+            }
+            if (to[target] != UNREACHABLE) {
+                if (to[v] == UNREACHABLE) {
+                    // v 到不了 L, 而 target 能到 L, 所以 v 也到不了 target
+                    return UNREACHABLE;
+                }
+                bound = Math.max(bound, to[v] - to[target]);
+            }
+        }
+        return bound;
+    }
+
+    // 估算占用的堆内存(字节)
+    public long estimateHeapBytes() {
+        return 2L * landmarks.length * (16L + 4L * graph.nodeCount()) + 16L + 4L * landmarks.length;
+    }
+}
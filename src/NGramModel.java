@@ -0,0 +1,432 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+// N 元(order 阶)转移模型: 状态是前 order - 1 个单词, 转移是 状态 -> 下一个单词, 权重为出现次数
+// order 为 2 时与 WordGraph 的边(二元组)相同
+// 状态不以字符串为键, 而以单词 ID 序列的 64 位哈希为键存放在 LongIntHashMap 中(哈希 -> 状态编号);
+// 不同序列的哈希相同(概率约为 状态数^2 / 2^65)时两个状态会被合并, 对文本生成可以忽略
+// 冻结后的转移按 CSR 存储: 状态 s 的转移位于 [offsets[s], offsets[s + 1]), 按下一个单词的 ID 升序排列
+public final class NGramModel {
+    private final int order;
+    private final WordGraph graph;
+    // 状态哈希 -> 状态编号
+    private final LongIntHashMap states;
+    // 状态 s 的单词位于 [s * (order - 1), (s + 1) * (order - 1))
+    private final int[] stateWords;
+    private final int[] offsets;
+    private final int[] nextWords;
+    // 行内的累计次数, 转移 e 的次数为 ends[e] - ends[e - 1](行首为 ends[e])
+    private final int[] ends;
+    // 转移后到达的状态编号, 该状态从未作为上下文出现(文本末尾)时为 -1
+    private final int[] successors;
+    // 按第一个单词分组的状态: 第一个单词为 w 的状态位于 byFirstWord[firstWordOffsets[w], firstWordOffsets[w + 1])
+    private final int[] firstWordOffsets;
+    private final int[] byFirstWord;
+
+    private NGramModel(int order, WordGraph graph, LongIntHashMap states, int[] stateWords, int[] offsets,
+                       int[] nextWords, int[] ends, int[] successors) {
+        this.order = order;
+        this.graph = graph;
+        this.states = states;
+        this.stateWords = stateWords;
+        this.offsets = offsets;
+        this.nextWords = nextWords;
+        this.ends = ends;
+        this.successors = successors;
+        // 计数排序, 供随机游走按起始单词选择状态
+        int stateCount = offsets.length - 1;
+        firstWordOffsets = new int[graph.nodeCount() + 1];
+        byFirstWord = new int[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            firstWordOffsets[stateWords[s * (order - 1)] + 1]++;
+        }
+        for (int w = 0; w < graph.nodeCount(); w++) {
+            firstWordOffsets[w + 1] += firstWordOffsets[w];
+        }
+        int[] next = Arrays.copyOf(firstWordOffsets, graph.nodeCount());
+        for (int s = 0; s < stateCount; s++) {
+            byFirstWord[next[stateWords[s * (order - 1)]]++] = s;
+        }
+    }
+
+    // 单词 ID 序列 words[from, from + length) 的 64 位哈希
+    static long hash(int[] words, int from, int length) {
+        long h = 0x9E3779B97F4A7C15L * length;
+        for (int i = from; i < from + length; i++) {
+            h = (h ^ (words[i] & 0xffffffffL)) * 0xff51afd7ed558ccdL;
+            h ^= h >>> 32;
+        }
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    public int order() {
+        return order;
+    }
+
+    // 单词 ID 所属的图版本
+    public WordGraph graph() {
+        return graph;
+    }
+
+    public int stateCount() {
+        return offsets.length - 1;
+    }
+
+    public int transitionCount() {
+        return nextWords.length;
+    }
+
+    // 上下文 context[from, from + order - 1) 对应的状态编号, 不存在返回 -1
+    public int state(int[] context, int from) {
+        return states.get(hash(context, from, order - 1), -1);
+    }
+
+    // 状态 s 的第 i 个单词(0 <= i < order - 1)
+    public int stateWord(int s, int i) {
+        return stateWords[s * (order - 1) + i];
+    }
+
+    public int transitionStart(int s) {
+        return offsets[s];
+    }
+
+    public int transitionEnd(int s) {
+        return offsets[s + 1];
+    }
+
+    public int nextWord(int transition) {
+        return nextWords[transition];
+    }
+
+    // 状态 s 的转移 transition 出现的次数
+    public int count(int s, int transition) {
+        return transition == offsets[s] ? ends[transition] : ends[transition] - ends[transition - 1];
+    }
+
+    public int successor(int transition) {
+        return successors[transition];
+    }
+
+    // 状态 s 后接 word 的转移下标, 不存在返回 -1
+    public int findTransition(int s, int word) {
+        int index = Arrays.binarySearch(nextWords, offsets[s], offsets[s + 1], word);
+        return index >= 0 ? index : -1;
+    }
+
+    // 按次数加权选择状态 s 的一个转移, 没有转移时返回 -1
+    public int sampleTransition(int s, Random random) {
+        int start = offsets[s];
+        int end = offsets[s + 1];
+        if (start == end) {
+            return -1;
+        }
+        int r = random.nextInt(ends[end - 1]);
+        // 第一个累计次数大于 r 的转移
+        int low = start;
+        int high = end - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] > r) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    // 高阶桥接词: 在 context[from, from + order - 1) 之后、next 之前可以插入的单词 w,
+    // 即 上下文 -> w 与 (上下文去掉第一个单词 + w) -> next 两个转移都出现过; order 为 2 时就是普通的桥接词
+    public int[] bridgeWords(int[] context, int from, int next) {
+        int s = state(context, from);
+        if (s < 0) {
+            return new int[0];
+        }
+        int[] bridges = new int[offsets[s + 1] - offsets[s]];
+        int n = 0;
+        for (int e = offsets[s]; e < offsets[s + 1]; e++) {
+            int t = successors[e];
+            if (t >= 0 && findTransition(t, next) >= 0) {
+                bridges[n++] = nextWords[e];
+            }
+        }
+        return Arrays.copyOf(bridges, n);
+    }
+
+    public String generateNewText(String inputText) {
+        return generateNewText(inputText, ThreadLocalRandom.current());
+    }
+
+    // 在相邻两个单词之间插入一个高阶桥接词(如果有的话), 以 次数(上下文 -> w) * 次数(w 所在的新上下文 -> 下一个单词)
+    // 为权重选择; 上下文取已生成文本的最后 order - 1 个单词(包括插入的词), 不足 order - 1 个或含有图中没有的单词时不插入
+    // 单词的切分与构图时相同(不产生空单词); 文本中没有单词时原样返回
+    public String generateNewText(String inputText, Random random) {
+        List<String> words = WordTokenizer.words(inputText);
+        if (words.isEmpty()) {
+            return inputText;
+        }
+        StringBuilder newText = new StringBuilder();
+        int context = order - 1;
+        // 已生成的单词 ID, 图中没有的单词为 -1
+        int[] generated = new int[2 * words.size()];
+        int n = 0;
+        for (int i = 0; i < words.size(); i++) {
+            if (i > 0) {
+                newText.append(' ');
+                int next = graph.id(words.get(i));
+                int bridge = next >= 0 && n >= context ? pickBridge(generated, n - context, next, random) : -1;
+                if (bridge >= 0) {
+                    newText.append(graph.word(bridge)).append(' ');
+                    generated[n++] = bridge;
+                }
+            }
+            newText.append(words.get(i));
+            generated[n++] = graph.id(words.get(i));
+        }
+        return newText.toString();
+    }
+
+    // 随机选择一个高阶桥接词, 没有时返回 -1
+    private int pickBridge(int[] context, int from, int next, Random random) {
+        for (int i = from; i < from + order - 1; i++) {
+            if (context[i] < 0) {
+                return -1;
+            }
+        }
+        int s = state(context, from);
+        if (s < 0) {
+            return -1;
+        }
+        long total = 0;
+        for (int e = offsets[s]; e < offsets[s + 1]; e++) {
+            total += bridgeWeight(s, e, next);
+        }
+        if (total == 0) {
+            return -1;
+        }
+        long r = random.nextLong(total);
+        for (int e = offsets[s]; e < offsets[s + 1]; e++) {
+            r -= bridgeWeight(s, e, next);
+            if (r < 0) {
+                return nextWords[e];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private long bridgeWeight(int s, int e, int next) {
+        int t = successors[e];
+        int f = t < 0 ? -1 : findTransition(t, next);
+        return f < 0 ? 0 : (long) count(s, e) * count(t, f);
+    }
+
+    public GraphQueryEngine.RandomWalk randomWalk(String startWord, long maxSteps) {
+        return randomWalk(startWord, maxSteps, ThreadLocalRandom.current());
+    }
+
+    // 在高阶状态上随机游走: 从以 startWord 开头的一个随机状态(为 null 时从任意状态)出发, 按次数加权选择下一个单词,
+    // 直到第一次重复同一个转移(状态 + 下一个单词)、走到没有转移的状态或走了 maxSteps 步;
+    // 结果包括起始状态的全部单词, 没有这样的状态时返回 null
+    public GraphQueryEngine.RandomWalk randomWalk(String startWord, long maxSteps, Random random) {
+        int s = startState(startWord, random);
+        if (s < 0) {
+            return null;
+        }
+        EdgeVisitSet visited = new EdgeVisitSet(nextWords.length);
+        List<String> path = new ArrayList<>();
+        for (int i = 0; i < order - 1; i++) {
+            path.add(graph.word(stateWord(s, i)));
+        }
+        for (long step = 0; step < maxSteps; step++) {
+            int e = sampleTransition(s, random);
+            if (e < 0) {
+                break;
+            }
+            path.add(graph.word(nextWords[e]));
+            if (!visited.add(e)) {
+                return new GraphQueryEngine.RandomWalk(path, true);
+            }
+            s = successors[e];
+            if (s < 0) {
+                break;
+            }
+        }
+        return new GraphQueryEngine.RandomWalk(path, false);
+    }
+
+    private int startState(String startWord, Random random) {
+        if (stateCount() == 0) {
+            return -1;
+        }
+        if (startWord == null) {
+            return random.nextInt(stateCount());
+        }
+        int word = graph.id(startWord.toLowerCase());
+        if (word < 0) {
+            return -1;
+        }
+        // 在第一个单词为 word 的状态中等概率选择一个
+        int start = firstWordOffsets[word];
+        int count = firstWordOffsets[word + 1] - start;
+        return count == 0 ? -1 : byFirstWord[start + random.nextInt(count)];
+    }
+
+    // 估算占用的堆内存(字节), 不包括单词字典(与图共享)
+    public long estimateHeapBytes() {
+        return 48L + states.estimateHeapBytes()
+                + 16L + 4L * stateWords.length
+                + 16L + 4L * offsets.length
+                + 16L + 4L * nextWords.length
+                + 16L + 4L * ends.length
+                + 16L + 4L * successors.length
+                + 16L + 4L * firstWordOffsets.length
+                + 16L + 4L * byFirstWord.length;
+    }
+
+    // 一行内存报告, 如 "order 3: 1200 states, 5000 transitions, 0.1 MB (21.0 bytes/transition)"
+    public String footprint() {
+        long bytes = estimateHeapBytes();
+        return String.format("order %d: %d states, %d transitions, %.1f MB (%.1f bytes/transition)", order,
+                stateCount(), transitionCount(), bytes / 1e6,
+                transitionCount() == 0 ? 0.0 : (double) bytes / transitionCount());
+    }
+
+    // 可变的构建器: 依次接收单词 ID, 用最近 order - 1 个单词组成的窗口作为状态, 累加 状态 -> 单词 的次数
+    // 窗口在多次读入之间保留, 新的文本接在已读入的文本之后(与 WordGraph 的边一致)
+    public static final class Builder {
+        private final int order;
+        private final LongIntHashMap states = new LongIntHashMap();
+        private int[] stateWords = new int[64];
+        private int stateCount;
+        // 键为 (状态编号 << 32) | 下一个单词, 值为次数
+        private final LongIntHashMap transitions = new LongIntHashMap();
+        // 最近的 order - 1 个单词, 以环形缓冲区的方式保存; window 为按时间顺序展开的副本
+        private final int[] recent;
+        private final int[] window;
+        private int filled;
+        private int head;
+
+        public Builder(int order) {
+            if (order < 2) {
+                throw new IllegalArgumentException("order must be at least 2: " + order);
+            }
+            this.order = order;
+            this.recent = new int[order - 1];
+            this.window = new int[order - 1];
+        }
+
+        public int order() {
+            return order;
+        }
+
+        public void add(int word) {
+            int context = order - 1;
+            if (filled == context) {
+                for (int i = 0; i < context; i++) {
+                    window[i] = recent[(head + i) % context];
+                }
+                transitions.addTo(WordGraph.Builder.edgeKey(intern(window), word), 1);
+                recent[head] = word;
+                head = (head + 1) % context;
+            } else {
+                recent[filled++] = word;
+            }
+        }
+
+        // 上下文 words[0, order - 1) 的状态编号, 第一次出现时分配新编号
+        private int intern(int[] words) {
+            long key = hash(words, 0, order - 1);
+            int s = states.get(key, -1);
+            if (s >= 0) {
+                return s;
+            }
+            s = stateCount++;
+            states.put(key, s);
+            if ((long) stateCount * (order - 1) > stateWords.length) {
+                stateWords = Arrays.copyOf(stateWords, Math.max(stateWords.length * 2, stateCount * (order - 1)));
+            }
+            System.arraycopy(words, 0, stateWords, s * (order - 1), order - 1);
+            return s;
+        }
+
+        // 清空窗口, 之后的单词不与此前的单词相连(例如换了一份不相关的图)
+        public void resetWindow() {
+            filled = 0;
+            head = 0;
+        }
+
+        // 冻结为只读模型, graph 须包含已加入的全部单词 ID; 之后构建器仍可继续使用
+        public NGramModel freeze(WordGraph graph) {
+            long[] keys = transitions.keys();
+            Arrays.sort(keys);
+            int context = order - 1;
+            int[] next = new int[context];
+            int[] successorStates = new int[keys.length];
+            // 复制一份状态表, 构建器之后新增的状态不影响已冻结的模型
+            LongIntHashMap frozenStates = new LongIntHashMap(stateCount);
+            states.forEach(frozenStates::put);
+            for (int i = 0; i < keys.length; i++) {
+                int s = (int) (keys[i] >>> 32);
+                System.arraycopy(stateWords, s * context + 1, next, 0, context - 1);
+                next[context - 1] = (int) keys[i];
+                successorStates[i] = frozenStates.get(hash(next, 0, context), -1);
+            }
+            int[] offsets = new int[stateCount + 1];
+            int[] nextWords = new int[keys.length];
+            int[] ends = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                int s = (int) (keys[i] >>> 32);
+                offsets[s + 1]++;
+                nextWords[i] = (int) keys[i];
+                int count = transitions.get(keys[i], 0);
+                boolean rowStart = i == 0 || (int) (keys[i - 1] >>> 32) != s;
+                ends[i] = rowStart ? count : ends[i - 1] + count;
+            }
+            for (int s = 0; s < stateCount; s++) {
+                offsets[s + 1] += offsets[s];
+            }
+            return new NGramModel(order, graph, frozenStates, Arrays.copyOf(stateWords, stateCount * context),
+                    offsets, nextWords, ends, successorStates);
+        }
+    }
+
+    // 读入文本文件, 构建 2 到 maxOrder 阶的模型并打印各阶的状态数、转移数和内存估算
+    // 用法: java NGramModel <文本文件> [最大阶数]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java NGramModel <text file> [max order]");
+            return;
+        }
+        int maxOrder = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        WordGraph.Builder graphBuilder = new WordGraph.Builder();
+        List<Builder> builders = new ArrayList<>();
+        for (int order = 2; order <= maxOrder; order++) {
+            builders.add(new Builder(order));
+        }
+        int[] last = {-1};
+        WordTokenizer.tokenizeFile(args[0], (buffer, length) -> {
+            int word = graphBuilder.intern(buffer, 0, length);
+            if (last[0] >= 0) {
+                graphBuilder.addEdge(last[0], word, 1);
+            }
+            last[0] = word;
+            for (Builder builder : builders) {
+                builder.add(word);
+            }
+        });
+        WordGraph graph = graphBuilder.freeze();
+        System.out.printf("graph: %d words, %d edges, %.1f MB%n", graph.nodeCount(), graph.edgeCount(),
+                graph.estimateHeapBytes() / 1e6);
+        for (Builder builder : builders) {
+            long begin = System.nanoTime();
+            NGramModel model = builder.freeze(graph);
+            System.out.printf("%s, frozen in %.3f s%n", model.footprint(), (System.nanoTime() - begin) / 1e9);
+        }
+    }
+}
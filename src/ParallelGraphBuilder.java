@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// 并行构图: 把文件按字节切成若干块(块边界对齐到单词之间), 每块在 fork-join 线程中
+// 独立分词并统计局部边权, 最后按块顺序合并到全局构建器中
+// 相邻两块之间的"接缝边"(前一块最后一个单词 -> 后一块第一个单词)在合并时补上,
+// 因此结果与顺序读入完全一致, 单词 ID 的分配顺序也一致
+public class ParallelGraphBuilder {
+    // 小于该大小的块不再继续切分
+    private static final long MIN_CHUNK = 1L << 20;
+
+    // 一个块的局部结果
+    private static final class Shard implements WordTokenizer.Sink {
+        final long start;
+        final long end;
+        final WordDictionary dictionary = new WordDictionary();
+        final LongIntHashMap edges = new LongIntHashMap();
+        int first = -1;
+        int last = -1;
+        long lines;
+
+        Shard(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void word(byte[] buffer, int length) {
+            int word = dictionary.intern(buffer, 0, length);
+            if (last >= 0) {
+                edges.addTo(WordGraph.Builder.edgeKey(last, word), 1);
+            } else {
+                first = word;
+            }
+            last = word;
+        }
+    }
+
+    @SuppressWarnings("serial") // 只在本进程的线程池中执行, 不会被序列化
+    private static final class ShardTask extends RecursiveAction {
+        private final FileChannel channel;
+        private final Shard[] shards;
+        private final int from;
+        private final int to;
+
+        ShardTask(FileChannel channel, Shard[] shards, int from, int to) {
+            this.channel = channel;
+            this.shards = shards;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ShardTask(channel, shards, from, mid), new ShardTask(channel, shards, mid, to));
+                return;
+            }
+            Shard shard = shards[from];
+            WordTokenizer tokenizer = new WordTokenizer(shard);
+            try {
+                tokenizer.feed(channel, shard.start, shard.end);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            tokenizer.finish();
+            shard.lines = tokenizer.lines();
+        }
+    }
+
+    public static final class Result {
+        // 新的最后一个单词
+        public final int lastWord;
+        // 读入的行数(换行符个数)
+        public final long lines;
+
+        Result(int lastWord, long lines) {
+            this.lastWord = lastWord;
+            this.lines = lines;
+        }
+    }
+
+    // 读入文件并把边加入 builder, lastWord 为此前最后一个单词的 ID(没有则为 -1)
+    public static Result build(String txtFile, int threads, WordGraph.Builder builder, int lastWord) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(txtFile), StandardOpenOption.READ)) {
+            Shard[] shards = split(channel, threads);
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new ShardTask(channel, shards, 0, shards.length));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+            long lines = 0;
+            for (Shard shard : shards) {
+                lines += shard.lines;
+            }
+            return new Result(merge(shards, builder, lastWord), lines);
+        }
+    }
+
+    // 按字节切块, 每个切点向后移动到第一个非字母字节, 保证单词不被切断
+    private static Shard[] split(FileChannel channel, int threads) throws IOException {
+        long size = channel.size();
+        int count = (int) Math.max(1, Math.min(threads, size / MIN_CHUNK));
+        // 合并的开销与块数成正比, 因此每个线程只分一块
+        Shard[] shards = new Shard[count];
+        ByteBuffer one = ByteBuffer.allocate(1);
+        long start = 0;
+        for (int i = 0; i < count; i++) {
+            long end = i == count - 1 ? size : Math.max(start, size / count * (i + 1));
+            while (end < size) {
+                one.clear();
+                channel.read(one, end);
+                if (WordTokenizer.foldLetter(one.get(0)) < 0) {
+                    break;
+                }
+                end++;
+            }
+            shards[i] = new Shard(start, end);
+            start = end;
+        }
+        return shards;
+    }
+
+    // 按块的顺序把局部 ID 映射为全局 ID, 累加边权并补上块之间的接缝边
+    private static int merge(Shard[] shards, WordGraph.Builder builder, int lastWord) {
+        for (Shard shard : shards) {
+            if (shard.first < 0) {
+                continue;
+            }
+            WordDictionary dictionary = shard.dictionary;
+            int[] global = new int[dictionary.size()];
+            for (int id = 0; id < global.length; id++) {
+                global[id] = builder.intern(dictionary.word(id));
+            }
+            shard.edges.forEach((key, count) ->
+                    builder.addEdge(global[(int) (key >>> 32)], global[(int) key], count));
+            if (lastWord >= 0) {
+                builder.addEdge(lastWord, global[shard.first], 1);
+            }
+            lastWord = global[shard.last];
+        }
+        return lastWord;
+    }
+}
@@ -0,0 +1,9 @@
+// 两点间最短路径的搜索方式
+public enum PathSearchMode {
+    // 单向迪杰斯特拉, 终点确定后停止
+    DIJKSTRA,
+    // 双向迪杰斯特拉(正向沿出边, 反向沿入边)
+    BIDIRECTIONAL,
+    // 以地标距离为下界的 A* 搜索, 地标在图变化后的第一次查询时预先计算
+    ALT
+}
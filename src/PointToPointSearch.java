@@ -0,0 +1,229 @@
+import java.util.Arrays;
+
+// 单对结点的最短路径搜索: 双向迪杰斯特拉, 以及基于地标(ALT)下界的 A* 搜索
+// 两种方式都返回与 ShortestPathEngine 相同的前驱 DAG, 即包含全部等长最短路径
+public class PointToPointSearch {
+    private static final int UNREACHABLE = PredecessorDag.UNREACHABLE;
+    // 反向搜索使用的第二份临时数组
+    private static final ThreadLocal<ShortestPathEngine.Scratch> BACKWARD = ThreadLocal.withInitial(ShortestPathEngine.Scratch::new);
+    // A* 中堆的键 g + h
+    private static final ThreadLocal<int[][]> PRIORITY = ThreadLocal.withInitial(() -> new int[1][0]);
+
+    private final WordGraph graph;
+    private final ShortestPathEngine engine;
+
+    public PointToPointSearch(WordGraph graph) {
+        this.graph = graph;
+        this.engine = new ShortestPathEngine(graph);
+    }
+
+    public WordGraph graph() {
+        return graph;
+    }
+
+    // 双向迪杰斯特拉: 正向沿出边、反向沿入边交替扩展(每次扩展堆较小的一侧),
+    // 当两侧堆顶距离之和严格大于当前最优值 mu 时停止(严格大于才能找全等长路径)
+    //
+    // 停止时, 设某条最短路径上正向已确定的结点构成前缀 s..u, 其后继 v 未被正向确定,
+    // 则 df(v) >= 正向堆顶, 从而 db(v) = mu - df(v) < 反向堆顶, v 及其后的结点都已被反向确定.
+    // 所以每条最短路径都唯一地拆成: 正向前驱 DAG 中的 s..u + 交汇边 u -> v + 反向后继链 v..t
+    public PredecessorDag bidirectional(int source, int target) {
+        int n = graph.nodeCount();
+        ShortestPathEngine.Scratch f = ShortestPathEngine.scratch(n);
+        ShortestPathEngine.Scratch b = BACKWARD.get();
+        b.ensure(n);
+        try {
+            long mu = UNREACHABLE;
+            f.settledCount = 0;
+            b.settledCount = 0;
+            f.dist[source] = 0;
+            f.touch(source);
+            f.heap.push(source);
+            b.dist[target] = 0;
+            b.touch(target);
+            b.heap.push(target);
+            while (!f.heap.isEmpty() && !b.heap.isEmpty()) {
+                long topF = f.dist[f.heap.peek()];
+                long topB = b.dist[b.heap.peek()];
+                if (mu != UNREACHABLE && topF + topB > mu) {
+                    break;
+                }
+                if (f.heap.size() <= b.heap.size()) {
+                    mu = Math.min(mu, expand(f, b, false));
+                } else {
+                    mu = Math.min(mu, expand(b, f, true));
+                }
+            }
+            // 两个方向出堆的结点都计入
+            f.settledCount += b.settledCount;
+            if (mu == UNREACHABLE) {
+                return PredecessorDag.unreachable(graph, source, target, f.settledCount);
+            }
+            if (!f.settled[target]) {
+                join(f, b, (int) mu);
+            }
+            return engine.extract(f, source, target);
+        } finally {
+            f.reset();
+            b.reset();
+        }
+    }
+
+    // 确定 self 一侧堆顶的结点并松弛它的边, 返回经过该结点的路径中最短的长度
+    private long expand(ShortestPathEngine.Scratch self, ShortestPathEngine.Scratch other, boolean reverse) {
+        int u = self.heap.poll();
+        self.settled[u] = true;
+        self.settledCount++;
+        int du = self.dist[u];
+        long best = other.dist[u] == UNREACHABLE ? UNREACHABLE : (long) du + other.dist[u];
+        int start = reverse ? graph.inEdgeStart(u) : graph.edgeStart(u);
+        int end = reverse ? graph.inEdgeEnd(u) : graph.edgeEnd(u);
+        for (int e = start; e < end; e++) {
+            int v = reverse ? graph.source(e) : graph.target(e);
+            int w = reverse ? graph.inWeight(e) : graph.weight(e);
+            if (other.dist[v] != UNREACHABLE) {
+                best = Math.min(best, (long) du + w + other.dist[v]);
+            }
+            if (self.settled[v]) {
+                continue;
+            }
+            int newDistance = du + w;
+            int old = self.dist[v];
+            if (newDistance < old) {
+                if (old == UNREACHABLE) {
+                    self.touch(v);
+                }
+                self.dist[v] = newDistance;
+                self.predHead[v] = -1;
+                self.addPred(v, u);
+                self.heap.push(v);
+            } else if (newDistance == old) {
+                self.addPred(v, u);
+            }
+        }
+        return best;
+    }
+
+    // 把反向部分接到正向的前驱表上: 先找出所有交汇边 u -> v (u 正向已确定, v 没有, 且 df(u) + w + db(v) = mu),
+    // 再从这些 v 出发沿反向搜索记录的后继链走到终点. 这些结点的正向临时前驱都作废, 距离改为 mu - db(v)
+    private void join(ShortestPathEngine.Scratch f, ShortestPathEngine.Scratch b, int mu) {
+        int[] queue = new int[16];
+        int size = 0;
+        int touchedForward = f.touchedCount;
+        for (int i = 0; i < touchedForward; i++) {
+            int u = f.touched[i];
+            if (!f.settled[u]) {
+                continue;
+            }
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.target(e);
+                if (f.settled[v] || !b.settled[v] || f.dist[u] + graph.weight(e) + b.dist[v] != mu) {
+                    continue;
+                }
+                if (f.local[v] < 0) {
+                    queue = adopt(f, b, v, mu, queue, size++);
+                }
+                f.addPred(v, u);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            int x = queue[i];
+            // b 中 x 的"前驱"是它在反向搜索中的后继 y (x -> y 在某条到终点的最短路径上)
+            for (int p = b.predHead[x]; p >= 0; p = b.predNext[p]) {
+                int y = b.predNode[p];
+                if (f.local[y] < 0) {
+                    queue = adopt(f, b, y, mu, queue, size++);
+                }
+                f.addPred(y, x);
+            }
+        }
+        // local 只在这里临时用作"已加入"标记, 提取 DAG 前要清掉
+        for (int i = 0; i < size; i++) {
+            f.local[queue[i]] = -1;
+        }
+    }
+
+    private static int[] adopt(ShortestPathEngine.Scratch f, ShortestPathEngine.Scratch b, int v, int mu, int[] queue, int index) {
+        if (f.dist[v] == UNREACHABLE) {
+            f.touch(v);
+        }
+        f.dist[v] = mu - b.dist[v];
+        f.predHead[v] = -1;
+        f.local[v] = index;
+        if (index == queue.length) {
+            queue = Arrays.copyOf(queue, index << 1);
+        }
+        queue[index] = v;
+        return queue;
+    }
+
+    // 以地标下界为启发函数的 A* 搜索. 下界是一致的, 因此出堆结点的距离已是最终值;
+    // 终点出堆得到 mu 后继续, 直到堆顶的 g + h 严格大于 mu, 这样等长路径上的结点都已扩展过
+    public PredecessorDag alt(int source, int target, Landmarks landmarks) {
+        int n = graph.nodeCount();
+        ShortestPathEngine.Scratch s = ShortestPathEngine.scratch(n);
+        int[][] holder = PRIORITY.get();
+        if (holder[0].length < n) {
+            holder[0] = new int[n];
+        }
+        int[] priority = holder[0];
+        int[] dist = s.dist;
+        IndexedHeap heap = s.heap;
+        heap.setKeys(priority);
+        s.settledCount = 0;
+        try {
+            int h = landmarks.lowerBound(source, target);
+            if (h == UNREACHABLE) {
+                return PredecessorDag.unreachable(graph, source, target);
+            }
+            long mu = UNREACHABLE;
+            dist[source] = 0;
+            priority[source] = h;
+            s.touch(source);
+            heap.push(source);
+            while (!heap.isEmpty()) {
+                int u = heap.peek();
+                if (priority[u] > mu) {
+                    break;
+                }
+                heap.poll();
+                s.settled[u] = true;
+                s.settledCount++;
+                if (u == target) {
+                    mu = dist[u];
+                    continue;
+                }
+                int du = dist[u];
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    int v = graph.target(e);
+                    int newDistance = du + graph.weight(e);
+                    int old = dist[v];
+                    if (newDistance < old) {
+                        int hv = landmarks.lowerBound(v, target);
+                        if (hv == UNREACHABLE) {
+                            continue;
+                        }
+                        if (old == UNREACHABLE) {
+                            s.touch(v);
+                        }
+                        dist[v] = newDistance;
+                        priority[v] = newDistance + hv;
+                        s.predHead[v] = -1;
+                        s.addPred(v, u);
+                        heap.push(v);
+                    } else if (newDistance == old) {
+                        // 启发函数打平时, 等长前驱可能晚于 v 出堆, 所以不论 v 是否已确定都要记录
+                        s.addPred(v, u);
+                    }
+                }
+            }
+            if (mu == UNREACHABLE) {
+                return PredecessorDag.unreachable(graph, source, target, s.settledCount);
+            }
+            return engine.extract(s, source, target);
+        } finally {
+            s.reset();
+            heap.setKeys(dist);
+        }
+    }
+}
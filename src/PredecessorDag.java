@@ -0,0 +1,144 @@
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// 最短路径的前驱 DAG: 只包含能沿前驱回溯到终点的结点, 即所有最短路径经过的结点
+// 结点使用局部下标, 下标 0 为终点; 每个结点的前驱按松弛的先后顺序保存
+public final class PredecessorDag {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final WordGraph graph;
+    private final int source;
+    private final int target;
+    private final int distance;
+    // 局部下标 -> 结点 ID
+    private final int[] nodes;
+    private final int[] predOffsets;
+    // 前驱的局部下标
+    private final int[] preds;
+    // 搜索时出堆的结点数, 由已缓存的单源结果得到时为 0
+    private final int settled;
+
+    PredecessorDag(WordGraph graph, int source, int target, int distance, int[] nodes, int[] predOffsets, int[] preds) {
+        this(graph, source, target, distance, nodes, predOffsets, preds, 0);
+    }
+
+    PredecessorDag(WordGraph graph, int source, int target, int distance, int[] nodes, int[] predOffsets, int[] preds,
+                   int settled) {
+        this.graph = graph;
+        this.source = source;
+        this.target = target;
+        this.distance = distance;
+        this.nodes = nodes;
+        this.predOffsets = predOffsets;
+        this.preds = preds;
+        this.settled = settled;
+    }
+
+    static PredecessorDag unreachable(WordGraph graph, int source, int target) {
+        return unreachable(graph, source, target, 0);
+    }
+
+    static PredecessorDag unreachable(WordGraph graph, int source, int target, int settled) {
+        return new PredecessorDag(graph, source, target, UNREACHABLE, new int[]{target}, new int[]{0, 0}, new int[0], settled);
+    }
+
+    public WordGraph graph() {
+        return graph;
+    }
+
+    public int source() {
+        return source;
+    }
+
+    public int target() {
+        return target;
+    }
+
+    public boolean isReachable() {
+        return distance != UNREACHABLE;
+    }
+
+    // 最短路径长度(边权之和), 不可达时为 UNREACHABLE
+    public int distance() {
+        return distance;
+    }
+
+    public int settled() {
+        return settled;
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public int node(int local) {
+        return nodes[local];
+    }
+
+    public int predStart(int local) {
+        return predOffsets[local];
+    }
+
+    public int predEnd(int local) {
+        return predOffsets[local + 1];
+    }
+
+    // 第 i 个前驱的局部下标
+    public int pred(int i) {
+        return preds[i];
+    }
+
+    // 惰性枚举全部最短路径
+    public ShortestPathEnumerator paths() {
+        return new ShortestPathEnumerator(this, Long.MAX_VALUE);
+    }
+
+    // 惰性枚举前 limit 条最短路径
+    public ShortestPathEnumerator paths(long limit) {
+        return new ShortestPathEnumerator(this, limit);
+    }
+
+    public Stream<int[]> pathStream(long limit) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(paths(limit),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // 最短路径的条数, 不枚举路径: count(v) 为其前驱 count 之和, count(起点) = 1
+    // 用显式栈做后序遍历, 超过 Long.MAX_VALUE 时饱和为 Long.MAX_VALUE
+    public long pathCount() {
+        if (!isReachable()) {
+            return 0;
+        }
+        int n = nodes.length;
+        long[] count = new long[n];
+        Arrays.fill(count, -1);
+        int[] stack = new int[n];
+        int[] cursor = new int[n];
+        int depth = 1;
+        cursor[0] = predOffsets[0];
+        while (depth > 0) {
+            int v = stack[depth - 1];
+            if (cursor[depth - 1] < predOffsets[v + 1]) {
+                int u = preds[cursor[depth - 1]++];
+                // DAG 中没有环, 未计算的前驱一定不在栈中
+                if (count[u] < 0) {
+                    stack[depth] = u;
+                    cursor[depth] = predOffsets[u];
+                    depth++;
+                }
+                continue;
+            }
+            long c = nodes[v] == source ? 1 : 0;
+            for (int p = predOffsets[v]; p < predOffsets[v + 1]; p++) {
+                long x = count[preds[p]];
+                c = c > Long.MAX_VALUE - x ? Long.MAX_VALUE : c + x;
+            }
+            count[v] = c;
+            depth--;
+        }
+        return count[0];
+    }
+}
@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// 多线程查询吞吐量: 在同一个冻结的图上, 用 1, 2, 4, ... 个线程同时执行混合查询
+// (桥接词、生成新文本、最短路径、随机游走), 报告每秒完成的查询数和相对单线程的加速比
+// 查询之间不共享可变状态, 加速比应接近线程数(不超过 CPU 核数)
+// 测量之前先验证线程安全: 同一组查询(随机数种子固定)由最大线程数个线程同时在一个新的查询引擎上执行,
+// 结果必须与单线程完全相同, 否则以非零状态退出
+// 用法: java QueryThroughputBenchmark [语料字节数] [每轮秒数] [最大线程数] [词汇量]
+public class QueryThroughputBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long bytes = args.length > 0 ? Long.parseLong(args[0]) : 20L << 20;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 3;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(4, 2 * cores);
+        int vocabulary = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+
+        SyntheticCorpus corpus = new SyntheticCorpus(vocabulary, 1.0, 42L);
+        Path file = Files.createTempFile("corpus", ".txt");
+        TextToDotGraph textGraph = new TextToDotGraph();
+        try {
+            corpus.write(file.toString(), bytes);
+            textGraph.readTxt(file.toString());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        WordGraph graph = textGraph.wordGraph();
+        GraphQueryEngine queries = new GraphQueryEngine(graph);
+        System.out.printf("%d nodes, %d edges, %d cores%n", graph.nodeCount(), graph.edgeCount(), cores);
+
+        // 按词频抽样的查询单词, 所有线程共用(只读)
+        SplittableRandom random = new SplittableRandom(7);
+        String[] words = new String[1 << 12];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = corpus.wordAt(corpus.sample(random));
+        }
+
+        verify(graph, words, maxThreads, 1_000);
+        System.out.printf("%d threads return the same answers as 1 thread%n", maxThreads);
+
+        // 预热
+        run(queries, words, 1, Math.min(seconds, 2));
+        double base = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double rate = run(queries, words, threads, seconds);
+            if (threads == 1) {
+                base = rate;
+            }
+            System.out.printf("%3d threads  %10.0f queries/s  speedup %.2fx%n", threads, rate, rate / base);
+        }
+    }
+
+    // 开启桥接词索引、加权采样和 ALT 搜索, 使懒加载的索引、别名表和地标都在并发下第一次构建
+    private static GraphQueryEngine configured(WordGraph graph) {
+        GraphQueryEngine queries = new GraphQueryEngine(graph);
+        queries.enableBridgeIndex(BridgeIndex.DEFAULT_MAX_BYTES, BridgeIndex.DEFAULT_HUB_FANOUT);
+        queries.setSamplingMode(SamplingMode.WEIGHTED);
+        queries.setPathSearchMode(PathSearchMode.ALT);
+        return queries;
+    }
+
+    // 第 i 个查询的结果(文本形式), 查询的单词和随机数都只由 i 决定
+    private static String answer(GraphQueryEngine queries, String[] words, int i) {
+        SplittableRandom pick = new SplittableRandom(i);
+        String w1 = words[pick.nextInt(words.length)];
+        String w2 = words[pick.nextInt(words.length)];
+        Random random = new Random(i);
+        switch (i & 3) {
+            case 0:
+                return queries.bridgeWords(w1, w2).bridges.toString();
+            case 1:
+                return queries.generateNewText(w1 + " " + w2 + " " + words[pick.nextInt(words.length)], random);
+            case 2:
+                GraphQueryEngine.ShortestPaths paths = queries.shortestPaths(w1, w2, DotWriter.PATH_COLORS.size());
+                return paths.distance + " " + paths.totalPaths + " " + paths.paths;
+            default:
+                GraphQueryEngine.RandomWalk walk = queries.randomWalk(w1, 1000, random);
+                return walk.repeatedEdge + " " + walk.path;
+        }
+    }
+
+    // threads 个线程各自从不同的位置开始执行全部 count 个查询, 与单线程的结果逐个比较
+    private static void verify(WordGraph graph, String[] words, int threads, int count) throws InterruptedException {
+        GraphQueryEngine single = configured(graph);
+        String[] expected = new String[count];
+        for (int i = 0; i < count; i++) {
+            expected[i] = answer(single, words, i);
+        }
+        GraphQueryEngine shared = configured(graph);
+        String[][] actual = new String[threads][count];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = (int) ((long) t * count / threads);
+            String[] results = actual[t];
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < count; j++) {
+                    int i = (offset + j) % count;
+                    results[i] = answer(shared, words, i);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < count; i++) {
+                if (!expected[i].equals(actual[t][i])) {
+                    throw new IllegalStateException("query " + i + " on thread " + t + " differs from the single-threaded"
+                            + " answer:\n  expected " + expected[i] + "\n  actual   " + actual[t][i]);
+                }
+            }
+        }
+    }
+
+    // threads 个线程同时查询 seconds 秒, 返回每秒完成的查询数
+    private static double run(GraphQueryEngine queries, String[] words, int threads, double seconds)
+            throws InterruptedException {
+        LongAdder done = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                while (!stop.get()) {
+                    query(queries, words, random, (int) count);
+                    count++;
+                }
+                done.add(count);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep((long) (seconds * 1000));
+        stop.set(true);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return done.sum() / ((System.nanoTime() - begin) / 1e9);
+    }
+
+    // 依次轮流执行四种查询
+    private static void query(GraphQueryEngine queries, String[] words, ThreadLocalRandom random, int kind) {
+        String w1 = words[random.nextInt(words.length)];
+        String w2 = words[random.nextInt(words.length)];
+        switch (kind & 3) {
+            case 0:
+                queries.bridgeWords(w1, w2);
+                break;
+            case 1:
+                queries.generateNewText(w1 + " " + w2 + " " + words[random.nextInt(words.length)], random);
+                break;
+            case 2:
+                queries.shortestPaths(w1, w2, DotWriter.PATH_COLORS.size());
+                break;
+            default:
+                queries.randomWalk(w1, 1000, random);
+                break;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+// 随机游走和桥接词选择时的采样方式
+public enum SamplingMode {
+    // 所有候选等概率(原先的行为)
+    UNIFORM,
+    // 按边权加权
+    WEIGHTED
+}
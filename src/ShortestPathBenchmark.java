@@ -0,0 +1,144 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// 最短路径延迟对比: 原先基于 Map 和 PriorityQueue<String> 的实现 vs ShortestPathEngine,
+// 以及双向迪杰斯特拉和 ALT(A* + 地标) 两种点对点搜索
+// 用法: java ShortestPathBenchmark [语料字节数] [查询次数] [词汇量]
+public class ShortestPathBenchmark {
+
+    // 原先 shortestPaths 的实现(去掉了打印), 作为对照
+    static List<List<String>> legacyShortestPaths(Map<String, Map<String, Integer>> graph, String startWord, String endWord) {
+        Map<String, Integer> distances = new HashMap<>();
+        Map<String, List<String>> predecessors = new HashMap<>();
+        Set<String> visited = new HashSet<>();
+        PriorityQueue<String> queue = new PriorityQueue<>(Comparator.comparingInt(distances::get));
+        for (String word : graph.keySet()) {
+            distances.put(word, Integer.MAX_VALUE);
+            predecessors.put(word, new ArrayList<>());
+        }
+        distances.put(startWord, 0);
+        queue.add(startWord);
+        while (!queue.isEmpty()) {
+            String currentWord = queue.poll();
+            if (visited.contains(currentWord)) {
+                continue;
+            }
+            visited.add(currentWord);
+            Map<String, Integer> neighbors = graph.get(currentWord);
+            if (neighbors == null) {
+                continue;
+            }
+            for (String neighbor : neighbors.keySet()) {
+                if (!visited.contains(neighbor)) {
+                    int newDistance = distances.get(currentWord) + neighbors.get(neighbor);
+                    if (newDistance < distances.get(neighbor)) {
+                        distances.put(neighbor, newDistance);
+                        queue.add(neighbor);
+                        predecessors.get(neighbor).clear();
+                        predecessors.get(neighbor).add(currentWord);
+                    } else if (newDistance == distances.get(neighbor)) {
+                        predecessors.get(neighbor).add(currentWord);
+                    }
+                }
+            }
+        }
+        List<List<String>> paths = new ArrayList<>();
+        legacyBuildPaths(predecessors, paths, new LinkedList<>(), endWord, startWord);
+        return paths;
+    }
+
+    private static void legacyBuildPaths(Map<String, List<String>> predecessors, List<List<String>> paths,
+                                         LinkedList<String> path, String current, String start) {
+        path.addFirst(current);
+        if (current.equals(start)) {
+            paths.add(new ArrayList<>(path));
+        } else if (predecessors.get(current) != null) {
+            for (String predecessor : predecessors.get(current)) {
+                legacyBuildPaths(predecessors, paths, path, predecessor, start);
+            }
+        }
+        path.removeFirst();
+    }
+
+    static String percentiles(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double sum = 0;
+        for (long t : sorted) {
+            sum += t;
+        }
+        return String.format("mean %8.1f us  p50 %8.1f us  p99 %8.1f us",
+                sum / sorted.length / 1e3, sorted[sorted.length / 2] / 1e3, sorted[(int) (sorted.length * 0.99)] / 1e3);
+    }
+
+    public static void main(String[] args) throws IOException {
+        long bytes = args.length > 0 ? Long.parseLong(args[0]) : 20L << 20;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        Path corpus = Files.createTempFile("corpus", ".txt");
+        try {
+            SyntheticCorpus generator = new SyntheticCorpus(vocabulary, 1.0, 42L);
+            generator.write(corpus.toString(), bytes);
+            Map<String, Map<String, Integer>> legacy = GraphFootprintReport.buildLegacyGraph(corpus.toString());
+            TextToDotGraph textGraph = new TextToDotGraph();
+            textGraph.readTxt(corpus.toString());
+            WordGraph graph = textGraph.wordGraph();
+            ShortestPathEngine engine = new ShortestPathEngine(graph);
+            PointToPointSearch pointToPoint = new PointToPointSearch(graph);
+            long t = System.nanoTime();
+            Landmarks landmarks = new Landmarks(graph, 8);
+            System.out.printf("landmark precomputation: %.1f ms%n", (System.nanoTime() - t) / 1e6);
+            System.out.printf("graph: %d nodes, %d edges, %d queries%n", graph.nodeCount(), graph.edgeCount(), queries);
+
+            Random random = new Random(7);
+            int[][] pairs = new int[queries][2];
+            for (int[] pair : pairs) {
+                pair[0] = random.nextInt(graph.nodeCount());
+                pair[1] = random.nextInt(graph.nodeCount());
+            }
+            // 预热
+            for (int i = 0; i < Math.min(queries, 20); i++) {
+                legacyShortestPaths(legacy, graph.word(pairs[i][0]), graph.word(pairs[i][1]));
+                engine.search(pairs[i][0], pairs[i][1]);
+                pointToPoint.bidirectional(pairs[i][0], pairs[i][1]);
+                pointToPoint.alt(pairs[i][0], pairs[i][1], landmarks);
+            }
+            long[] legacyNanos = new long[queries];
+            long[] engineNanos = new long[queries];
+            long[] bidirectionalNanos = new long[queries];
+            long[] altNanos = new long[queries];
+            int mismatches = 0;
+            for (int i = 0; i < queries; i++) {
+                String from = graph.word(pairs[i][0]), to = graph.word(pairs[i][1]);
+                long t0 = System.nanoTime();
+                List<List<String>> expected = legacyShortestPaths(legacy, from, to);
+                long t1 = System.nanoTime();
+                PredecessorDag dag = engine.search(pairs[i][0], pairs[i][1]);
+                long t2 = System.nanoTime();
+                PredecessorDag bidirectional = pointToPoint.bidirectional(pairs[i][0], pairs[i][1]);
+                long t3 = System.nanoTime();
+                PredecessorDag alt = pointToPoint.alt(pairs[i][0], pairs[i][1], landmarks);
+                long t4 = System.nanoTime();
+                legacyNanos[i] = t1 - t0;
+                engineNanos[i] = t2 - t1;
+                bidirectionalNanos[i] = t3 - t2;
+                altNanos[i] = t4 - t3;
+                long count = dag.pathCount();
+                if (expected.size() != count || bidirectional.pathCount() != count || alt.pathCount() != count
+                        || dag.distance() != bidirectional.distance() || dag.distance() != alt.distance()) {
+                    mismatches++;
+                }
+            }
+            System.out.println("legacy Map/PriorityQueue<String>: " + percentiles(legacyNanos));
+            System.out.println("ShortestPathEngine:               " + percentiles(engineNanos));
+            System.out.println("bidirectional Dijkstra:           " + percentiles(bidirectionalNanos));
+            System.out.println("ALT (8 landmarks):                " + percentiles(altNanos));
+            System.out.println("path count mismatches: " + mismatches);
+        } finally {
+            Files.deleteIfExists(corpus);
+        }
+    }
+}
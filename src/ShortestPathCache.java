@@ -0,0 +1,82 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 按源点缓存单源最短路径树的 LRU 缓存
+// 缓存绑定一个图, 图重新冻结(对象不同)后第一次访问会清空旧的结果
+public class ShortestPathCache {
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private final int capacity;
+    private final LinkedHashMap<Integer, ShortestPathTree> trees;
+    private WordGraph graph;
+    private long hits;
+    private long misses;
+
+    public ShortestPathCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ShortestPathCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        // accessOrder 为 true, 最久未访问的在最前
+        this.trees = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ShortestPathTree> eldest) {
+                return size() > ShortestPathCache.this.capacity;
+            }
+        };
+    }
+
+    // 取出 graph 上以 source 为源点的最短路径树, 不在缓存中则计算并放入
+    public ShortestPathTree get(WordGraph graph, int source) {
+        synchronized (this) {
+            if (this.graph != graph) {
+                trees.clear();
+                this.graph = graph;
+            }
+            ShortestPathTree tree = trees.get(source);
+            if (tree != null) {
+                hits++;
+                return tree;
+            }
+            misses++;
+        }
+        // 计算时不持有锁, 并发的同源查询最多重复计算一次
+        ShortestPathTree tree = new ShortestPathEngine(graph).singleSource(source);
+        synchronized (this) {
+            if (this.graph == graph) {
+                trees.put(source, tree);
+            }
+        }
+        return tree;
+    }
+
+    // 只查缓存, 不计算
+    public synchronized ShortestPathTree peek(WordGraph graph, int source) {
+        return this.graph == graph ? trees.get(source) : null;
+    }
+
+    public synchronized void clear() {
+        trees.clear();
+        graph = null;
+    }
+
+    public synchronized int size() {
+        return trees.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+}
@@ -0,0 +1,221 @@
+import java.util.Arrays;
+
+// 基于整数结点 ID 的迪杰斯特拉最短路径
+// 使用带 decrease-key 的 4 叉堆; 距离、前驱等临时数组按线程复用, 只重置本次访问过的结点;
+// 终点出堆(距离确定)后立即停止. 边权至少为 1, 所以终点的所有等长前驱此时都已确定
+public class ShortestPathEngine {
+    private static final int UNREACHABLE = PredecessorDag.UNREACHABLE;
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final WordGraph graph;
+
+    public ShortestPathEngine(WordGraph graph) {
+        this.graph = graph;
+    }
+
+    // 每个线程复用的临时数组
+    static final class Scratch {
+        int[] dist = new int[0];
+        boolean[] settled = new boolean[0];
+        // 前驱链表: predHead[v] 为 v 的第一个前驱项, 项中保存前驱结点和下一项
+        int[] predHead = new int[0];
+        int[] predNode = new int[64];
+        int[] predNext = new int[64];
+        int predCount;
+        // 提取 DAG 时使用的局部下标
+        int[] local = new int[0];
+        int[] touched = new int[0];
+        int touchedCount;
+        final IndexedHeap heap = new IndexedHeap(0);
+        // 本次搜索出堆的结点数
+        int settledCount;
+
+        void ensure(int n) {
+            if (dist.length < n) {
+                dist = new int[n];
+                Arrays.fill(dist, UNREACHABLE);
+                settled = new boolean[n];
+                predHead = new int[n];
+                Arrays.fill(predHead, -1);
+                local = new int[n];
+                Arrays.fill(local, -1);
+                touched = new int[n];
+                heap.ensureCapacity(n);
+            }
+            heap.setKeys(dist);
+        }
+
+        void touch(int v) {
+            touched[touchedCount++] = v;
+        }
+
+        void addPred(int v, int u) {
+            if (predCount == predNode.length) {
+                predNode = Arrays.copyOf(predNode, predCount << 1);
+                predNext = Arrays.copyOf(predNext, predCount << 1);
+            }
+            predNode[predCount] = u;
+            predNext[predCount] = predHead[v];
+            predHead[v] = predCount++;
+        }
+
+        // 只重置访问过的结点
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                int v = touched[i];
+                dist[v] = UNREACHABLE;
+                settled[v] = false;
+                predHead[v] = -1;
+                local[v] = -1;
+            }
+            touchedCount = 0;
+            predCount = 0;
+            heap.clear();
+        }
+    }
+
+    static Scratch scratch(int n) {
+        Scratch scratch = SCRATCH.get();
+        scratch.ensure(n);
+        return scratch;
+    }
+
+    public WordGraph graph() {
+        return graph;
+    }
+
+    // 计算 source 到 target 的所有最短路径, 以前驱 DAG 的形式返回
+    public PredecessorDag search(int source, int target) {
+        Scratch s = scratch(graph.nodeCount());
+        try {
+            run(s, source, target);
+            return extract(s, source, target);
+        } finally {
+            s.reset();
+        }
+    }
+
+    // 单源最短路径: 一次遍历求出 source 到所有结点的距离和全部等长前驱
+    public ShortestPathTree singleSource(int source) {
+        int n = graph.nodeCount();
+        Scratch s = scratch(n);
+        try {
+            run(s, source, -1);
+            int[] dist = new int[n];
+            Arrays.fill(dist, UNREACHABLE);
+            int[] predOffsets = new int[n + 1];
+            for (int i = 0; i < s.touchedCount; i++) {
+                int v = s.touched[i];
+                dist[v] = s.dist[v];
+                for (int p = s.predHead[v]; p >= 0; p = s.predNext[p]) {
+                    predOffsets[v + 1]++;
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                predOffsets[v + 1] += predOffsets[v];
+            }
+            int[] preds = new int[predOffsets[n]];
+            for (int i = 0; i < s.touchedCount; i++) {
+                int v = s.touched[i];
+                // 链表是逆序的, 倒着填回去
+                int j = predOffsets[v + 1];
+                for (int p = s.predHead[v]; p >= 0; p = s.predNext[p]) {
+                    preds[--j] = s.predNode[p];
+                }
+            }
+            return new ShortestPathTree(graph, source, dist, predOffsets, preds, s.touchedCount);
+        } finally {
+            s.reset();
+        }
+    }
+
+    // 迪杰斯特拉主循环, target 出堆后停止(target 为 -1 时遍历所有可达结点)
+    void run(Scratch s, int source, int target) {
+        run(s, source, target, Integer.MAX_VALUE);
+    }
+
+    // 同上, 但出堆的结点数达到 maxSettled 且堆顶距离更远时也停止(与最后出堆结点等距的结点都会出堆),
+    // 用于只需要最近的若干个结点的场合
+    void run(Scratch s, int source, int target, int maxSettled) {
+        int[] dist = s.dist;
+        boolean[] settled = s.settled;
+        IndexedHeap heap = s.heap;
+        s.settledCount = 0;
+        dist[source] = 0;
+        s.touch(source);
+        heap.push(source);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settled[u] = true;
+            s.settledCount++;
+            int du = dist[u];
+            if (u == target || s.settledCount >= maxSettled && (heap.isEmpty() || dist[heap.peek()] > du)) {
+                return;
+            }
+            for (int e = graph.edgeStart(u), end = graph.edgeEnd(u); e < end; e++) {
+                int v = graph.target(e);
+                if (settled[v]) {
+                    continue;
+                }
+                int newDistance = du + graph.weight(e);
+                int old = dist[v];
+                if (newDistance < old) {
+                    if (old == UNREACHABLE) {
+                        s.touch(v);
+                    }
+                    dist[v] = newDistance;
+                    s.predHead[v] = -1;
+                    s.addPred(v, u);
+                    heap.push(v);
+                } else if (newDistance == old) {
+                    s.addPred(v, u);
+                }
+            }
+        }
+    }
+
+    // 从终点沿前驱广度优先回溯, 拷贝出只读的前驱 DAG(前驱保持松弛的先后顺序)
+    PredecessorDag extract(Scratch s, int source, int target) {
+        if (s.dist[target] == UNREACHABLE) {
+            return PredecessorDag.unreachable(graph, source, target, s.settledCount);
+        }
+        int[] local = s.local;
+        int[] nodes = new int[16];
+        int size = 0;
+        int edgeCount = 0;
+        nodes[size] = target;
+        local[target] = size++;
+        for (int i = 0; i < size; i++) {
+            for (int p = s.predHead[nodes[i]]; p >= 0; p = s.predNext[p]) {
+                int u = s.predNode[p];
+                edgeCount++;
+                if (local[u] < 0) {
+                    if (size == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, size << 1);
+                    }
+                    nodes[size] = u;
+                    local[u] = size++;
+                }
+            }
+        }
+        int[] predOffsets = new int[size + 1];
+        int[] preds = new int[edgeCount];
+        int k = 0;
+        for (int i = 0; i < size; i++) {
+            predOffsets[i] = k;
+            // 链表是逆序的, 倒着填回去
+            int count = 0;
+            for (int p = s.predHead[nodes[i]]; p >= 0; p = s.predNext[p]) {
+                count++;
+            }
+            int j = k + count;
+            for (int p = s.predHead[nodes[i]]; p >= 0; p = s.predNext[p]) {
+                preds[--j] = local[s.predNode[p]];
+            }
+            k += count;
+        }
+        predOffsets[size] = k;
+        return new PredecessorDag(graph, source, target, s.dist[target],
+                Arrays.copyOf(nodes, size), predOffsets, preds, s.settledCount);
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// 惰性地枚举前驱 DAG 中的最短路径(结点 ID 数组, 从起点到终点), 最多 limit 条
+// 用显式栈从终点沿前驱做深度优先搜索, 顺序与原先递归的 buildPaths 相同;
+// DAG 中的结点都能回溯到起点, 所以每取一条路径只需要 O(路径长度) 的时间, 内存只有一条路径的栈
+public final class ShortestPathEnumerator implements Iterator<int[]> {
+    private final PredecessorDag dag;
+    private final long limit;
+    // stack[i] 为第 i 层的局部下标, cursor[i] 为它下一个要访问的前驱
+    private int[] stack = new int[8];
+    private int[] cursor = new int[8];
+    private int depth;
+    private long produced;
+    // 栈中已经是一条未取出的完整路径
+    private boolean ready;
+
+    ShortestPathEnumerator(PredecessorDag dag, long limit) {
+        this.dag = dag;
+        this.limit = limit;
+        if (dag.isReachable() && limit > 0) {
+            push(0);
+            // 起点与终点相同时只有一条单结点路径
+            ready = dag.node(0) == dag.source();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready && produced < limit) {
+            ready = advance();
+        }
+        return ready;
+    }
+
+    @Override
+    public int[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        produced++;
+        int[] path = new int[depth];
+        for (int i = 0; i < depth; i++) {
+            path[i] = dag.node(stack[depth - 1 - i]);
+        }
+        return path;
+    }
+
+    // 已取出的路径条数
+    public long produced() {
+        return produced;
+    }
+
+    // 继续深度优先搜索直到栈顶为起点, 没有更多路径时返回 false
+    private boolean advance() {
+        while (depth > 0) {
+            int top = depth - 1;
+            if (cursor[top] < dag.predEnd(stack[top])) {
+                int child = dag.pred(cursor[top]++);
+                push(child);
+                if (dag.node(child) == dag.source()) {
+                    return true;
+                }
+            } else {
+                depth--;
+            }
+        }
+        return false;
+    }
+
+    private void push(int local) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth << 1);
+            cursor = Arrays.copyOf(cursor, depth << 1);
+        }
+        stack[depth] = local;
+        cursor[depth] = dag.predStart(local);
+        depth++;
+    }
+}
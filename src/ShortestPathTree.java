@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+// 单源最短路径的结果: 源点到所有结点的距离, 以及每个结点的全部等长前驱(前驱 DAG 的全图版本)
+public final class ShortestPathTree {
+    public static final int UNREACHABLE = PredecessorDag.UNREACHABLE;
+
+    private final WordGraph graph;
+    private final int source;
+    private final int[] dist;
+    private final int[] predOffsets;
+    // 前驱的结点 ID, 按松弛的先后顺序
+    private final int[] preds;
+    private final int reachable;
+
+    ShortestPathTree(WordGraph graph, int source, int[] dist, int[] predOffsets, int[] preds, int reachable) {
+        this.graph = graph;
+        this.source = source;
+        this.dist = dist;
+        this.predOffsets = predOffsets;
+        this.preds = preds;
+        this.reachable = reachable;
+    }
+
+    public WordGraph graph() {
+        return graph;
+    }
+
+    public int source() {
+        return source;
+    }
+
+    // 可达结点个数(包括源点)
+    public int reachableCount() {
+        return reachable;
+    }
+
+    public int distance(int node) {
+        return dist[node];
+    }
+
+    public boolean isReachable(int node) {
+        return dist[node] != UNREACHABLE;
+    }
+
+    public int predStart(int node) {
+        return predOffsets[node];
+    }
+
+    public int predEnd(int node) {
+        return predOffsets[node + 1];
+    }
+
+    public int pred(int i) {
+        return preds[i];
+    }
+
+    // 取出到 target 的前驱 DAG, 其中的路径及各结点前驱的顺序与 ShortestPathEngine.search(source, target) 相同
+    public PredecessorDag dagTo(int target) {
+        if (dist[target] == UNREACHABLE) {
+            return PredecessorDag.unreachable(graph, source, target);
+        }
+        // 用 LongIntHashMap 作为结点 -> 局部下标的映射, 只访问 DAG 中的结点
+        LongIntHashMap local = new LongIntHashMap();
+        int[] nodes = new int[16];
+        int size = 0;
+        int edgeCount = 0;
+        nodes[size] = target;
+        local.put(target, size++);
+        for (int i = 0; i < size; i++) {
+            for (int p = predOffsets[nodes[i]]; p < predOffsets[nodes[i] + 1]; p++) {
+                int u = preds[p];
+                edgeCount++;
+                if (!local.containsKey(u)) {
+                    if (size == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, size << 1);
+                    }
+                    nodes[size] = u;
+                    local.put(u, size++);
+                }
+            }
+        }
+        int[] dagOffsets = new int[size + 1];
+        int[] dagPreds = new int[edgeCount];
+        int k = 0;
+        for (int i = 0; i < size; i++) {
+            dagOffsets[i] = k;
+            for (int p = predOffsets[nodes[i]]; p < predOffsets[nodes[i] + 1]; p++) {
+                dagPreds[k++] = local.get(preds[p], -1);
+            }
+        }
+        dagOffsets[size] = k;
+        return new PredecessorDag(graph, source, target, dist[target], Arrays.copyOf(nodes, size), dagOffsets, dagPreds);
+    }
+
+    // 估算占用的堆内存(字节)
+    public long estimateHeapBytes() {
+        return 48L + 16L + 4L * dist.length + 16L + 4L * predOffsets.length + 16L + 4L * preds.length;
+    }
+}
@@ -0,0 +1,98 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 冷启动对比: 每次启动一个新的 JVM, 分别从文本(readTxt)和二进制快照(loadSnapshot)载入图并完成第一次查询
+// 子进程报告从 JVM 启动到图载入完成、到第一次查询完成的时间; 文件刚写过, 操作系统页缓存是热的
+// 用法: java SnapshotBenchmark [语料字节数] [每种方式的启动次数] [词汇量]
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child")) {
+            child(args[1], args[2]);
+            return;
+        }
+        long bytes = args.length > 0 ? Long.parseLong(args[0]) : 50L << 20;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        Path corpus = Files.createTempFile("corpus", ".txt");
+        Path snapshot = Files.createTempFile("graph", ".wgs");
+        try {
+            new SyntheticCorpus(vocabulary, 1.0, 42L).write(corpus.toString(), bytes);
+            TextToDotGraph textGraph = new TextToDotGraph();
+            textGraph.readTxt(corpus.toString());
+            long t = System.nanoTime();
+            textGraph.saveSnapshot(snapshot.toString());
+            WordGraph graph = textGraph.wordGraph();
+            System.out.printf("corpus %.1f MB, snapshot %.1f MB (saved in %.1f ms), %d nodes, %d edges%n",
+                    Files.size(corpus) / 1e6, Files.size(snapshot) / 1e6, (System.nanoTime() - t) / 1e6,
+                    graph.nodeCount(), graph.edgeCount());
+            for (String mode : new String[]{"text", "snapshot"}) {
+                String file = mode.equals("text") ? corpus.toString() : snapshot.toString();
+                long[] load = new long[runs];
+                long[] ready = new long[runs];
+                for (int i = 0; i < runs; i++) {
+                    long[] times = runChild(mode, file);
+                    load[i] = times[0];
+                    ready[i] = times[1];
+                }
+                System.out.printf("%-8s  loaded after %s ms, first query after %s ms (median %d / %d ms)%n", mode,
+                        Arrays.toString(load), Arrays.toString(ready), median(load), median(ready));
+            }
+        } finally {
+            Files.deleteIfExists(corpus);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    private static long[] runChild(String mode, String file) throws IOException, InterruptedException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> cmd = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                SnapshotBenchmark.class.getName(), "--child", mode, file));
+        Process process = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        String result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("times ")) {
+                    result = line;
+                }
+            }
+        }
+        if (process.waitFor() != 0 || result == null) {
+            throw new IOException("benchmark child failed: " + String.join(" ", cmd));
+        }
+        String[] parts = result.split(" ");
+        return new long[]{Long.parseLong(parts[1]), Long.parseLong(parts[2])};
+    }
+
+    // 子进程: 载入图, 查询一次最短路径, 打印距 JVM 启动的毫秒数
+    private static void child(String mode, String file) {
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        TextToDotGraph textGraph = new TextToDotGraph();
+        if (mode.equals("text")) {
+            textGraph.readTxt(file);
+        } else {
+            textGraph.loadSnapshot(file);
+        }
+        long loaded = System.currentTimeMillis() - jvmStart;
+        WordGraph graph = textGraph.wordGraph();
+        new ShortestPathEngine(graph).search(0, graph.nodeCount() - 1);
+        long ready = System.currentTimeMillis() - jvmStart;
+        System.out.println("times " + loaded + " " + ready);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,114 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+// 确定性的 Zipf 分布合成语料, 用于基准测试; 相同的参数在任何机器上生成相同的文件
+// 第 k 个单词(k 从 1 开始)的出现概率与 1 / k^exponent 成正比, 单词由排名的 26 进制字母表示
+public class SyntheticCorpus {
+    private final int vocabulary;
+    private final long seed;
+    // 累积分布
+    private final double[] cdf;
+    private final byte[][] words;
+
+    public SyntheticCorpus(int vocabulary, double exponent, long seed) {
+        this.vocabulary = vocabulary;
+        this.seed = seed;
+        cdf = new double[vocabulary];
+        words = new byte[vocabulary][];
+        double sum = 0;
+        for (int k = 0; k < vocabulary; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+            words[k] = word(k);
+        }
+        for (int k = 0; k < vocabulary; k++) {
+            cdf[k] /= sum;
+        }
+    }
+
+    public int vocabulary() {
+        return vocabulary;
+    }
+
+    // 第 rank 个单词(rank 从 0 开始), 例如 0 -> "a", 25 -> "z", 26 -> "ba"
+    static byte[] word(int rank) {
+        byte[] buffer = new byte[8];
+        int length = 0;
+        do {
+            buffer[length++] = (byte) ('a' + rank % 26);
+            rank /= 26;
+        } while (rank > 0);
+        byte[] word = new byte[length];
+        for (int i = 0; i < length; i++) {
+            word[i] = buffer[length - 1 - i];
+        }
+        return word;
+    }
+
+    public String wordAt(int rank) {
+        return new String(words[rank], StandardCharsets.ISO_8859_1);
+    }
+
+    // 按 Zipf 分布抽取一个单词的排名
+    public int sample(SplittableRandom random) {
+        double x = random.nextDouble();
+        int low = 0, high = vocabulary - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cdf[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 写出约 bytes 字节的文本, 每行 1~16 个单词, 夹杂标点和大写
+    public void write(OutputStream out, long bytes) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        long written = 0;
+        while (written < bytes) {
+            int count = 1 + random.nextInt(16);
+            for (int i = 0; i < count; i++) {
+                byte[] word = words[sample(random)];
+                boolean upper = random.nextInt(20) == 0;
+                for (byte b : word) {
+                    out.write(upper ? b - 32 : b);
+                }
+                int separator = random.nextInt(10);
+                out.write(separator == 0 ? ',' : separator == 1 ? '.' : ' ');
+                if (separator < 2) {
+                    out.write(' ');
+                    written++;
+                }
+                written += word.length + 1;
+            }
+            out.write('\n');
+            written++;
+        }
+    }
+
+    public void write(String file, long bytes) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(file)), 1 << 16)) {
+            write(out, bytes);
+        }
+    }
+
+    // 用法: java SyntheticCorpus <输出文件> <字节数> [词汇量] [指数] [种子]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java SyntheticCorpus <output file> <bytes> [vocabulary] [exponent] [seed]");
+            return;
+        }
+        int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+        double exponent = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+        new SyntheticCorpus(vocabulary, exponent, seed).write(args[0], Long.parseLong(args[1]));
+    }
+}
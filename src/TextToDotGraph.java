@@ -1,332 +1,635 @@
-import java.io.BufferedReader;
+import javax.management.JMException;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class TextToDotGraph {
-    // 用于存储图的邻接表
-    private Map<String, Map<String, Integer>> graph = new HashMap<>();
-    private String lastWord = null; //用于保存前一行的最后一个单词
-    private String rootWord = null; //用于保存第一个单词(固定根节点为第一个单词)
-    //    private Random random = new Random(); //用于随机选择桥接词
-    private Random random = ThreadLocalRandom.current();  // 随机选择桥接词及随机游走时用到, 适用于在多线程环境
-    private boolean stopRandomWalk = false;  //用于控制随机游走
+    // 写入(读入文本、追加、载入快照)互斥, 查询不加锁
+    private final Object ingestLock = new Object();
+    // 构建中的图(单词驻留为整数 ID, 边权存放在基本类型哈希表中), 由 ingestLock 保护
+    // 从快照载入后为 null, 继续读入文本时再由 graph 重建
+    private WordGraph.Builder builder = new WordGraph.Builder();
+    // 冻结后的 CSR 邻接表, 所有查询都在它上面进行
+    // 每次写入后发布一个新的只读版本; 查询开始时读取一次, 整个查询都使用同一个版本
+    private volatile WordGraph graph = WordGraph.EMPTY;
+    private int lastWord = -1; //用于保存前一个单词的ID(可能是前一行的最后一个单词), 由 ingestLock 保护
+    private volatile String rootWord = null; //用于保存第一个单词(固定根节点为第一个单词)
+    // 查询(桥接词、新文本、最短路径、随机游走)都交给查询引擎, 引擎每次查询读取当前发布的图版本
+    // 运行指标(系统属性 graph.metrics=true 时记录)
+    private final GraphMetrics metrics = new GraphMetrics(() -> graph);
+    private final GraphQueryEngine queries = new GraphQueryEngine(() -> graph, metrics);
+    // 单词排名(PageRank、前 K 个后继等), 图变化后在下一次使用时重建
+    private volatile GraphAnalytics analytics;
+    // N 元模式(setNGramOrder): 构建器与图共享单词 ID, 由 ingestLock 保护; 冻结的模型在第一次使用时生成, 图变化后丢弃
+    private NGramModel.Builder nGramBuilder;
+    private volatile NGramModel nGramModel;
+    // 外存模式: 不为 null 时桥接词、最短路径和随机游走都在映射的磁盘图上进行; 再读入文本或载入快照时回到内存中的图
+    private volatile DiskGraph diskGraph;
+    // 后台渲染图片, 两者都由 this 的锁保护
+    private List<String> dotCommand = List.of(System.getProperty("graphviz.dot", "dot"));
+    private GraphRenderer renderer;
+    private volatile boolean stopRandomWalk = false;  //用于控制随机游走
     private Thread stopListenerThread;
+    private static final byte[] LINE_BREAK = {'\n'};
 
     // 读取文本文件并构建有向图
+    // 文件以只读方式映射到内存后逐字节切分单词, 不再为每一行创建字符串和数组
+    // 可以多次调用, 新的文本接在已读入的文本之后(与上一次的最后一个单词相连)
     public void readTxt(String txtFile) {
-        try {
-            Scanner scanner = new Scanner(new File(txtFile));
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine().toLowerCase();
-                String[] words = line.split("[^a-zA-Z]+");
-//                for (String word : words) {
-//                    System.out.println(word);
-//                }
-                if (words.length == 0) continue;
-                //固定图的根节点
-                if (rootWord == null) {
-                    rootWord = words[0];
-                }
+        synchronized (ingestLock) {
+            long begin = GraphMetrics.start();
+            ensureBuilder();
+            long lines = 0;
+            try {
+                lines = WordTokenizer.tokenizeFile(txtFile, this::addWord);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            publish(builder.freeze());
+            metrics.ingested(GraphMetrics.Operation.INGEST, begin, new File(txtFile).length(), lines, graph);
+        }
+    }
 
-                if (lastWord != null) {
-                    addEdge(lastWord, words[0], 1);
-                }
+    // 并行读取文本文件并构建有向图, threads 为构图使用的线程数
+    // 结果(包括边权和单词 ID)与 readTxt(txtFile) 完全相同
+    // N 元模式下需要按顺序滑动窗口, 仍然单线程读入
+    public void readTxt(String txtFile, int threads) {
+        if (threads <= 1) {
+            readTxt(txtFile);
+            return;
+        }
+        synchronized (ingestLock) {
+            // 在锁内检查, 与 setNGramOrder 互斥(锁可重入)
+            if (nGramBuilder != null) {
+                readTxt(txtFile);
+                return;
+            }
+            long begin = GraphMetrics.start();
+            ensureBuilder();
+            long lines = 0;
+            try {
+                ParallelGraphBuilder.Result result = ParallelGraphBuilder.build(txtFile, threads, builder, lastWord);
+                lastWord = result.lastWord;
+                lines = result.lines;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            //固定图的根节点(第一个读入的单词 ID 为 0)
+            if (rootWord == null && builder.nodeCount() > 0) {
+                rootWord = builder.word(0);
+            }
+            publish(builder.freeze());
+            metrics.ingested(GraphMetrics.Operation.INGEST, begin, new File(txtFile).length(), lines, graph);
+        }
+    }
+
+    // 追加一个文本文件, 与 readTxt(txtFile) 相同
+    public void appendFile(String txtFile) {
+        readTxt(txtFile);
+    }
+
+    // 追加若干行文本: 累加边权并发布新的图版本, 第一行的第一个单词与此前的最后一个单词相连
+    // 每次调用只发布一次(代价与图的大小成正比), 因此应尽量成批追加
+    public void appendLines(Iterable<String> lines) {
+        synchronized (ingestLock) {
+            long begin = GraphMetrics.start();
+            ensureBuilder();
+            WordTokenizer tokenizer = new WordTokenizer(this::addWord);
+            long bytesRead = 0;
+            for (String line : lines) {
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                tokenizer.feed(bytes, 0, bytes.length);
+                // 行尾也是单词的分隔
+                tokenizer.feed(LINE_BREAK, 0, 1);
+                bytesRead += bytes.length + 1;
+            }
+            tokenizer.finish();
+            publish(builder.freeze());
+            metrics.ingested(GraphMetrics.Operation.INGEST, begin, bytesRead, tokenizer.lines(), graph);
+        }
+    }
+
+    // 发布新的图版本, 并丢弃基于旧版本的索引和缓存(正在进行的查询仍持有旧版本, 不受影响)
+    private void publish(WordGraph next) {
+        diskGraph = null;
+        if (next == graph) {
+            return;
+        }
+        graph = next;
+        queries.invalidate();
+        analytics = null;
+        nGramModel = null;
+    }
 
-                for (int i = 0; i < words.length - 1; i++) {
-                    addEdge(words[i], words[i + 1], 1);
+    // 接收分词器输出的单词(已转为小写), 并与前一个单词相连(前一个单词可能在上一行)
+    private void addWord(byte[] buffer, int length) {
+        int word = builder.intern(buffer, 0, length);
+        //固定图的根节点
+        if (rootWord == null) {
+            rootWord = builder.word(word);
+        }
+        if (lastWord >= 0) {
+            addEdge(lastWord, word, 1);
+        }
+        lastWord = word;
+        if (nGramBuilder != null) {
+            nGramBuilder.add(word);
+        }
+    }
+
+    // 向图中添加边
+    private void addEdge(int from, int to, int weight) {
+        builder.addEdge(from, to, weight);
+    }
+
+    private void ensureBuilder() {
+        if (builder == null) {
+            builder = WordGraph.Builder.of(graph);
+        }
+    }
+
+    // 把当前的图(包括根结点和最后一个单词)保存为二进制快照
+    public void saveSnapshot(String snapshotFile) {
+        GraphSnapshot snapshot;
+        synchronized (ingestLock) {
+            snapshot = new GraphSnapshot(graph, rootWord, lastWord);
+        }
+        try {
+            snapshot.save(snapshotFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // 从二进制快照载入图, 替换当前的图; 之后仍可继续读入文本
+    public void loadSnapshot(String snapshotFile) {
+        try {
+            long begin = GraphMetrics.start();
+            GraphSnapshot snapshot = GraphSnapshot.load(snapshotFile);
+            synchronized (ingestLock) {
+                rootWord = snapshot.rootWord();
+                lastWord = snapshot.lastWord();
+                builder = null;
+                // 快照中没有 N 元转移, 单词 ID 也可能不同, 只保留阶数
+                if (nGramBuilder != null) {
+                    nGramBuilder = new NGramModel.Builder(nGramBuilder.order());
                 }
-                lastWord = words[words.length - 1];
-                // 添加空边(最后一个单词没有出边, 其value值为0, 访问其会出现null错误)
-                graph.putIfAbsent(lastWord, new HashMap<>());
+                publish(snapshot.graph());
             }
-            scanner.close();
+            metrics.record(GraphMetrics.Operation.LOAD_SNAPSHOT, begin);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    // 向图中添加边
-    private void addEdge(String from, String to, int weight) {
-        graph.putIfAbsent(from, new HashMap<>());
-        Map<String, Integer> edges = graph.get(from);
-        edges.put(to, edges.getOrDefault(to, 0) + weight);
+    // 当前发布的图版本
+    WordGraph wordGraph() {
+        return graph;
+    }
+
+    // 根结点(第一个读入的单词), 还没有读入时为 null
+    String rootWord() {
+        return rootWord;
+    }
+
+    // 最后读入的单词, 下一次读入的第一个单词与它相连; 还没有读入时为 null
+    String lastWord() {
+        synchronized (ingestLock) {
+            return lastWord < 0 ? null : builder != null ? builder.word(lastWord) : graph.word(lastWord);
+        }
+    }
+
+    // 返回结果对象的查询接口, 可供多个线程同时使用
+    public GraphQueryEngine queries() {
+        return queries;
+    }
+
+    public GraphMetrics metrics() {
+        return metrics;
     }
 
-    // 将图保存为DOT语言文件
+    // 将图保存为DOT语言文件(文件名以 .gz 结尾时压缩写出)
     public void saveToDotFile(String outputFile) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(outputFile))) {
-            writer.println("digraph G {");
-            // 固定根节点
-            if (rootWord != null) {
-                writer.printf("    \"%s\" [root=true];\n", rootWord);
-            }
-            for (String from : graph.keySet()) {
-                for (String to : graph.get(from).keySet()) {
-                    int weight = graph.get(from).get(to);
-                    writer.printf("    \"%s\" -> \"%s\" [label=\"%d\"];\n", from, to, weight);
-                }
-            }
-            writer.println("}");
+        long begin = GraphMetrics.start();
+        try {
+            new DotWriter(graph, rootWord).write(outputFile, Collections.emptyList());
         } catch (IOException e) {
             e.printStackTrace();
         }
+        metrics.record(GraphMetrics.Operation.DOT_EXPORT, begin);
     }
 
+    // 同步地把 DOT 文件渲染为图片
     public void convertDotToImage(String dotFilePath, String outputImagePath) {
         try {
-            // 构造 Graphviz 命令
-            String[] cmd = {
-                    "dot", "-Tpng", dotFilePath, "-o", outputImagePath
-            };
-
-            // 执行命令
-            Process process = Runtime.getRuntime().exec(cmd);
-            process.waitFor();
-
-            // 输出 Graphviz 的错误流（如果有）
-            BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-            String line;
-            while ((line = errorReader.readLine()) != null) {
-                System.err.println(line);
+            GraphRenderer.Result result = renderer().render(Paths.get(dotFilePath), Paths.get(outputImagePath)).get();
+            if (!result.succeeded()) {
+                System.err.println("Failed to convert DOT file: " + result);
+                return;
             }
-
+            // 输出 Graphviz 的警告(如果有)
+            System.err.print(result.messages);
             System.out.println("DOT file successfully converted to image.");
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    // 查询桥接词
-    public void findBridgeWords(String word1, String word2) {
-        word1 = word1.toLowerCase();
-        word2 = word2.toLowerCase();
+    // 在后台渲染当前的图(标记 shortestPaths 中的路径), 不阻塞调用者; 完成后打印结果
+    public CompletableFuture<GraphRenderer.Result> renderImageAsync(String outputImagePath, List<List<String>> shortestPaths) {
+        WordGraph graph = this.graph; // 整个查询使用同一个图版本
+        DotWriter writer = new DotWriter(graph, rootWord);
+        List<int[]> paths = pathIds(graph, shortestPaths);
+        return report(renderer().render(out -> writer.write(out, paths), Paths.get(outputImagePath)), outputImagePath);
+    }
 
-        if (!graph.containsKey(word1) && !graph.containsKey(word2)) {
-            System.out.printf("No \"%s\" and \"%s\" in the graph!\n", word1, word2);
-            return;
-        } else if (!graph.containsKey(word1)) {
-            System.out.printf("No \"%s\" in the graph!\n", word1);
-            return;
-        }
-        else if (!graph.containsKey(word2)) {
-            System.out.printf("No \"%s\" in the graph!\n", word2);
-            return;
-        }
-        Set<String> bridgeWords = new HashSet<>();
-        Map<String, Integer> word1Edges = graph.get(word1);
+    // 在后台渲染已经写出的 DOT 文件, 不必再由图生成一遍; 完成后打印结果
+    public CompletableFuture<GraphRenderer.Result> renderDotFileAsync(String dotFilePath, String outputImagePath) {
+        return report(renderer().render(Paths.get(dotFilePath), Paths.get(outputImagePath)), outputImagePath);
+    }
 
-        for (String word3 : word1Edges.keySet()) {
-            Map<String, Integer> word3Edges = graph.get(word3);
-            if (word3Edges.containsKey(word2)) {
-                bridgeWords.add(word3);
+    private static CompletableFuture<GraphRenderer.Result> report(CompletableFuture<GraphRenderer.Result> render,
+                                                                  String outputImagePath) {
+        return render.whenComplete((result, error) -> {
+            if (error != null) {
+                System.err.println("Failed to render " + outputImagePath + ": " + error);
+            } else if (!result.succeeded()) {
+                System.err.println("Failed to render " + result);
+            } else {
+                System.err.print(result.messages);
+                System.out.println("Graph image saved to " + result);
             }
+        });
+    }
+
+    // 设置 Graphviz 命令(默认为系统属性 graphviz.dot, 未设置时为 dot)
+    // 每个任务的超时(毫秒)和 PNG 缓存目录分别由系统属性 graphviz.timeout 和 graphviz.cache 指定
+    public synchronized void setDotCommand(List<String> command) {
+        closeRenderer();
+        dotCommand = new ArrayList<>(command);
+    }
+
+    // 第一次渲染时创建; 加锁, 并发的调用者共用一个线程池
+    private synchronized GraphRenderer renderer() {
+        if (renderer == null) {
+            renderer = new GraphRenderer(dotCommand, 1, GraphRenderer.DEFAULT_QUEUE_CAPACITY,
+                    Long.getLong("graphviz.timeout", GraphRenderer.DEFAULT_TIMEOUT_MILLIS),
+                    Paths.get(System.getProperty("graphviz.cache", "./out/cache")));
+        }
+        return renderer;
+    }
+
+    // 等待未完成的渲染任务并释放线程
+    public synchronized void closeRenderer() {
+        if (renderer != null) {
+            renderer.close();
+            renderer = null;
         }
+    }
 
-        if (bridgeWords.isEmpty()) {
-            System.out.println("No bridge words from \"" + word1 + "\" to \"" + word2 + "\"!");
+    // 查询桥接词
+    public void findBridgeWords(String word1, String word2) {
+        DiskGraph disk = diskGraph;
+        GraphQueryEngine.BridgeWords result;
+        if (disk != null) {
+            long begin = GraphMetrics.start();
+            result = disk.bridgeWords(word1, word2);
+            metrics.record(GraphMetrics.Operation.BRIDGE_WORDS, begin);
         } else {
-            System.out.print("The bridge words from \"" + word1 + "\" to \"" + word2 + "\" are: ");
-            int i = 0;
-            for (String word : bridgeWords) {
-                if (i > 0) System.out.print(", ");
-                System.out.print(word);
-                i++;
-            }
-            System.out.println(".");
+            result = queries.bridgeWords(word1, word2);
+        }
+        if (printMissing(result.missingWords)) {
+            return;
+        }
+        if (result.bridges.isEmpty()) {
+            System.out.println("No bridge words from \"" + result.word1 + "\" to \"" + result.word2 + "\"!");
+        } else {
+            System.out.println("The bridge words from \"" + result.word1 + "\" to \"" + result.word2 + "\" are: "
+                    + String.join(", ", result.bridges) + ".");
         }
     }
 
-    // 生成新的文本
-    public String generateNewText(String inputText) {
-        String[] words = inputText.toLowerCase().split("[^a-zA-Z]+");
-        StringBuilder newText = new StringBuilder();
-
-        for (int i = 0; i < words.length - 1; i++) {
-            newText.append(words[i]).append(" ");
-            String bridgeWord = getBridgeWord(words[i], words[i + 1]);
-            if (bridgeWord != null) {
-                newText.append(bridgeWord).append(" ");
-            }
+    // 打印图中没有的单词, 有的话返回 true
+    private static boolean printMissing(List<String> missingWords) {
+        if (missingWords.size() == 2) {
+            System.out.printf("No \"%s\" and \"%s\" in the graph!\n", missingWords.get(0), missingWords.get(1));
+        } else if (missingWords.size() == 1) {
+            System.out.printf("No \"%s\" in the graph!\n", missingWords.get(0));
         }
-        newText.append(words[words.length - 1]); //加入文本中的最后一个单词
+        return !missingWords.isEmpty();
+    }
 
-        return newText.toString();
+    // 开启桥接词索引, maxBytes 为索引占用内存的上限, hubFanout 为枢纽词的两跳扇出阈值
+    public void enableBridgeIndex(long maxBytes, int hubFanout) {
+        queries.enableBridgeIndex(maxBytes, hubFanout);
     }
 
-    // 获取桥接词
-    private String getBridgeWord(String word1, String word2) {
-        if (!graph.containsKey(word1)) {
-            return null;
+    public void disableBridgeIndex() {
+        queries.disableBridgeIndex();
+    }
+
+    // 生成新的文本, N 元模式下插入高阶桥接词; 外存模式下在磁盘图上选择桥接词
+    public String generateNewText(String inputText) {
+        DiskGraph disk = diskGraph;
+        if (disk != null) {
+            long begin = GraphMetrics.start();
+            String newText = disk.generateNewText(inputText, queries.samplingMode(), ThreadLocalRandom.current());
+            metrics.record(GraphMetrics.Operation.GENERATE_TEXT, begin);
+            return newText;
         }
+        NGramModel model = nGramModel();
+        return model != null ? model.generateNewText(inputText) : queries.generateNewText(inputText);
+    }
 
-        List<String> bridgeWords = new ArrayList<>();
-        // 获取从 word1 出发的所有边
-        Map<String, Integer> word1Edges = graph.get(word1);
-        // 遍历从 word1 出发的每个目标单词word3
-        for (String word3 : word1Edges.keySet()) {
-            // 如果从 word3 到 word2 存在边，将 word3 添加到桥接词列表中
-            if (graph.get(word3) != null && graph.get(word3).containsKey(word2)) {
-                bridgeWords.add(word3);
-            }
+    // 开启 order 阶的 N 元模式(order 小于 2 时关闭), 只统计此后读入的文本
+    public void setNGramOrder(int order) {
+        synchronized (ingestLock) {
+            nGramBuilder = order < 2 ? null : new NGramModel.Builder(order);
+            nGramModel = null;
         }
+    }
 
-        if (bridgeWords.isEmpty()) {
-            return null;
+    // 外存模式: 由文本文件构建磁盘图(边经外部排序归并写入 graphFile)并在其上查询, 堆中只保留单词字典
+    public void buildDiskGraph(String txtFile, String graphFile) {
+        try {
+            long begin = System.nanoTime();
+            DiskGraph disk = DiskGraph.build(txtFile, graphFile);
+            diskGraph = disk;
+            System.out.printf("Disk graph with %d words and %d edges built in %.1f s: %s\n", disk.nodeCount(),
+                    disk.edgeCount(), (System.nanoTime() - begin) / 1e9, graphFile);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        //随机选择一个桥接词
-        return bridgeWords.get(random.nextInt(bridgeWords.size()));
     }
 
-    // 最短路径部分实现
-    // 将图保存为带有标记路径的DOT文件
-    public void saveToDotFile_color(String outputFile, List<List<String>> shortestPaths) {
-        List<String> dotLines = new ArrayList<>();
-        // 不同最短路径的颜色也不同
-        List<String> color = new ArrayList<>(Arrays.asList("blue", "red", "green", "orange", "pink"));
+    // 外存模式: 打开已有的磁盘图
+    public void openDiskGraph(String graphFile) {
+        try {
+            DiskGraph disk = DiskGraph.open(graphFile);
+            diskGraph = disk;
+            System.out.printf("Disk graph with %d words and %d edges opened: %s\n", disk.nodeCount(),
+                    disk.edgeCount(), graphFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-        int num_shortPath = shortestPaths.size();
+    // 是否处于外存模式: 查询(桥接词、生成文本、最短路径、随机游走)都在磁盘图上进行, DOT 导出、绘图等仍使用内存中的图
+    public boolean isDiskMode() {
+        return diskGraph != null;
+    }
 
-        // 添加固定根节点
-        if (rootWord != null) {
-            dotLines.add(String.format("    \"%s\" [root=true];", rootWord));
+    // 当前图版本上的 N 元模型, 没有开启 N 元模式时返回 null
+    public NGramModel nGramModel() {
+        NGramModel model = nGramModel;
+        if (model != null && model.graph() == graph) {
+            return model;
         }
-
-        // 遍历图中的每条边
-        for (String from : graph.keySet()) {
-            for (String to : graph.get(from).keySet()) {
-                int weight = graph.get(from).get(to);
-                int flag = -1;
-                int index1, index2;
-                for(int i = 0; i < num_shortPath; i++)
-                {
-                    List<String> shortestPath = shortestPaths.get(i);
-                    if((index1 = shortestPath.indexOf(from)) != -1 && (index2 = shortestPath.indexOf(to)) != -1)
-                    {
-
-                        if(index1 + 1 == index2)
-                        {
-                            if(flag != -1)
-                            {
-                                flag = -2;
-                            }
-                            else {
-                                flag = i;
-                            }
-                        }
-                    }
-                }
-                if (flag == -2) {
-                    dotLines.add(String.format("    \"%s\" -> \"%s\" [label=\"%d\", color=\"yellow\"];", from, to, weight));
-                } else if(flag == -1) {
-                    dotLines.add(String.format("    \"%s\" -> \"%s\" [label=\"%d\"];", from, to, weight));
-                }else{
-                    dotLines.add(String.format("    \"%s\" -> \"%s\" [label=\"%d\", color=\"%s\"];", from, to, weight, color.get(flag) ));
-                }
+        synchronized (ingestLock) {
+            if (nGramBuilder == null) {
+                return null;
+            }
+            model = nGramModel;
+            if (model == null || model.graph() != graph) {
+                model = nGramBuilder.freeze(graph);
+                nGramModel = model;
             }
+            return model;
         }
+    }
 
-        // 将所有 DOT 语句一次性写入文件
-        try (PrintWriter writer = new PrintWriter(new FileWriter(outputFile))) {
-            writer.println("digraph G {");
-            for (String line : dotLines) {
-                writer.println(line);
-            }
-            writer.println("}");
+    public void setSamplingMode(SamplingMode samplingMode) {
+        queries.setSamplingMode(samplingMode);
+    }
+
+    // 最短路径部分实现
+    // 将图保存为带有标记路径的DOT文件, 只标记前 DotWriter.PATH_COLORS.size() 条路径
+    public void saveToDotFile_color(String outputFile, List<List<String>> shortestPaths) {
+        long begin = GraphMetrics.start();
+        WordGraph graph = this.graph; // 整个查询使用同一个图版本
+        try {
+            new DotWriter(graph, rootWord).write(outputFile, pathIds(graph, shortestPaths));
         } catch (IOException e) {
             e.printStackTrace();
         }
+        metrics.record(GraphMetrics.Operation.DOT_EXPORT, begin);
+    }
+
+    // 把前 DotWriter.PATH_COLORS.size() 条路径的单词转换为结点 ID
+    private static List<int[]> pathIds(WordGraph graph, List<List<String>> shortestPaths) {
+        List<int[]> paths = new ArrayList<>();
+        for (int i = 0; i < Math.min(shortestPaths.size(), DotWriter.PATH_COLORS.size()); i++) {
+            List<String> words = shortestPaths.get(i);
+            int[] path = new int[words.size()];
+            for (int k = 0; k < path.length; k++) {
+                path[k] = graph.id(words.get(k));
+            }
+            paths.add(path);
+        }
+        return paths;
     }
 
     // 使用迪杰斯特拉算法计算最短路径
     public List<List<String>> shortestPaths(String startWord, String endWord) {
-        startWord = startWord.toLowerCase();
-        endWord = endWord.toLowerCase();
+        return shortestPaths(startWord, endWord, Integer.MAX_VALUE);
+    }
 
-        if (!graph.containsKey(startWord) && !graph.containsKey(endWord)) {
-            System.out.printf("No \"%s\" and \"%s\" in the graph!\n", startWord, endWord);
-            return null;
-        } else if (!graph.containsKey(startWord)) {
-            System.out.printf("No \"%s\" in the graph!\n", startWord);
-            return null;
+    // 只取前 limit 条最短路径(等长路径的条数可能随路径长度指数增长)
+    public List<List<String>> shortestPaths(String startWord, String endWord, int limit) {
+        DiskGraph disk = diskGraph;
+        GraphQueryEngine.ShortestPaths result;
+        if (disk != null) {
+            long begin = GraphMetrics.start();
+            result = disk.shortestPaths(startWord, endWord, limit);
+            metrics.record(GraphMetrics.Operation.SHORTEST_PATHS, begin);
+        } else {
+            result = queries.shortestPaths(startWord, endWord, limit);
         }
-        else if (!graph.containsKey(endWord)) {
-            System.out.printf("No \"%s\" in the graph!\n", endWord);
+        if (printMissing(result.missingWords)) {
             return null;
         }
-
-        Map<String, Integer> distances = new HashMap<>();
-        Map<String, List<String>> predecessors = new HashMap<>();
-        Set<String> visited = new HashSet<>();
-        PriorityQueue<String> queue = new PriorityQueue<>(Comparator.comparingInt(distances::get));
-
-        // 初始化距离和前驱节点
-        for (String word : graph.keySet()) {
-            distances.put(word, Integer.MAX_VALUE);
-            predecessors.put(word, new ArrayList<>());
+        if (result.paths.isEmpty())
+        {
+            System.out.printf("there is no way form \"%s\" to \"%s\"\n", result.startWord, result.endWord);
         }
+        else if (result.totalPaths > result.paths.size()) {
+            System.out.printf("%d shortest paths in total, keeping the first %d\n", result.totalPaths, limit);
+        }
+        return result.paths;
+    }
 
-        distances.put(startWord, 0);
-        queue.add(startWord);
-
-        // 迪杰斯特拉算法主循环
-        while (!queue.isEmpty()) {
-            String currentWord = queue.poll();
-            if (visited.contains(currentWord)) {
+    // 计算一个单词到所有单词的最短路径, 打印每个可达单词的距离和其中一条路径
+    // 外存模式下在磁盘图上计算, 只打印结果并返回 null(ShortestPathTree 依附于内存中的图)
+    public ShortestPathTree shortestPathsFrom(String startWord) {
+        DiskGraph disk = diskGraph;
+        if (disk != null) {
+            diskShortestPathsFrom(disk, startWord.toLowerCase());
+            return null;
+        }
+        WordGraph graph = this.graph; // 整个查询使用同一个图版本
+        startWord = startWord.toLowerCase();
+        int start = graph.id(startWord);
+        if (start < 0) {
+            System.out.printf("No \"%s\" in the graph!\n", startWord);
+            return null;
+        }
+        long begin = GraphMetrics.start();
+        ShortestPathTree tree = queries.shortestPathTree(graph, start);
+        metrics.record(GraphMetrics.Operation.SHORTEST_PATHS_FROM, begin);
+        StringBuilder line = new StringBuilder();
+        LinkedList<String> path = new LinkedList<>();
+        for (int v = 0; v < graph.nodeCount(); v++) {
+            if (v == start || !tree.isReachable(v)) {
                 continue;
             }
-            visited.add(currentWord);
+            // 沿第一个前驱回溯出一条路径
+            path.clear();
+            for (int u = v; u != start; u = tree.pred(tree.predStart(u))) {
+                path.addFirst(graph.word(u));
+            }
+            path.addFirst(startWord);
+            line.setLength(0);
+            line.append(graph.word(v)).append(" (").append(tree.distance(v)).append("): ");
+            line.append(String.join(" -> ", path));
+            System.out.println(line);
+        }
+        if (tree.reachableCount() <= 1) {
+            System.out.printf("there is no way form \"%s\" to any other word\n", startWord);
+        }
+        return tree;
+    }
 
-            Map<String, Integer> neighbors = graph.get(currentWord);
-            if (neighbors == null) {
+    // 与上面的输出相同, 路径沿磁盘图上第一个取得最短距离的前驱回溯
+    private void diskShortestPathsFrom(DiskGraph disk, String startWord) {
+        int start = disk.id(startWord);
+        if (start < 0) {
+            System.out.printf("No \"%s\" in the graph!\n", startWord);
+            return;
+        }
+        long begin = GraphMetrics.start();
+        int[] firstPred = new int[disk.nodeCount()];
+        int[] dist = disk.shortestDistances(start, firstPred);
+        metrics.record(GraphMetrics.Operation.SHORTEST_PATHS_FROM, begin);
+        StringBuilder line = new StringBuilder();
+        LinkedList<String> path = new LinkedList<>();
+        int reachable = 1;
+        for (int v = 0; v < disk.nodeCount(); v++) {
+            if (v == start || dist[v] == ShortestPathTree.UNREACHABLE) {
                 continue;
             }
-            for (String neighbor : neighbors.keySet()) {
-                if (!visited.contains(neighbor)) {
-                    int newDistance = distances.get(currentWord) + neighbors.get(neighbor);
-                    if (newDistance < distances.get(neighbor)) {
-                        distances.put(neighbor, newDistance);
-                        queue.add(neighbor);
-                        predecessors.get(neighbor).clear();
-                        predecessors.get(neighbor).add(currentWord);
-                    } else if (newDistance == distances.get(neighbor)) {
-                        predecessors.get(neighbor).add(currentWord);
-                    }
-                }
+            reachable++;
+            path.clear();
+            for (int u = v; u != start; u = firstPred[u]) {
+                path.addFirst(disk.word(u));
             }
+            path.addFirst(startWord);
+            line.setLength(0);
+            line.append(disk.word(v)).append(" (").append(dist[v]).append("): ");
+            line.append(String.join(" -> ", path));
+            System.out.println(line);
+        }
+        if (reachable <= 1) {
+            System.out.printf("there is no way form \"%s\" to any other word\n", startWord);
         }
+    }
+
+    // 全源最短路径: topK > 0 时写出每个单词最近的 topK 个单词(文本), 否则写出完整的二进制距离矩阵
+    public void allPairsShortestPaths(String outputFile, int topK, int threads) {
+        WordGraph graph = this.graph; // 整个查询使用同一个图版本
+        if (graph.isEmpty()) {
+            System.out.println("The graph is empty!");
+            return;
+        }
+        AllPairsShortestPaths allPairs = new AllPairsShortestPaths(graph, threads);
+        try {
+            long begin = System.nanoTime();
+            long count = topK > 0 ? allPairs.writeTopK(outputFile, topK) : allPairs.writeMatrix(outputFile);
+            System.out.printf("All-pairs shortest paths saved to %s: %d %s in %.3f s\n", outputFile, count,
+                    topK > 0 ? "entries" : "reachable pairs", (System.nanoTime() - begin) / 1e9);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-        // 构建所有从起点到终点的最短路径
-        List<List<String>> shortestPaths = new ArrayList<>();
-        buildPaths(predecessors, shortestPaths, new LinkedList<>(), endWord, startWord);
+    public void setPathSearchMode(PathSearchMode pathSearchMode) {
+        queries.setPathSearchMode(pathSearchMode);
+    }
 
-        if (shortestPaths.isEmpty())
-        {
-            System.out.printf("there is no way form \"%s\" to \"%s\"\n", startWord, endWord);
+    // 设置 ALT 模式使用的地标个数
+    public void setLandmarkCount(int landmarkCount) {
+        queries.setLandmarkCount(landmarkCount);
+    }
+
+    // 当前图版本上的单词排名, threads 为 PageRank 等并行计算使用的线程数
+    public GraphAnalytics analytics(int threads) {
+        WordGraph graph = this.graph;
+        GraphAnalytics current = analytics;
+        if (current == null || current.graph() != graph) {
+            current = new GraphAnalytics(graph, threads);
+            analytics = current;
         }
+        return current;
+    }
 
-        return shortestPaths;
+    // 打印 word 按边权排序的前 k 个后继
+    public void printTopSuccessors(String word, int k) {
+        GraphAnalytics analytics = analytics(Runtime.getRuntime().availableProcessors());
+        WordGraph graph = analytics.graph();
+        int u = graph.id(word.toLowerCase());
+        if (u < 0) {
+            System.out.printf("No \"%s\" in the graph!\n", word);
+            return;
+        }
+        GraphAnalytics.TopSuccessors successors = analytics.topSuccessors(k);
+        StringBuilder line = new StringBuilder("The top successors of \"" + graph.word(u) + "\" are:");
+        for (int i = 0; i < Math.min(k, successors.count(u)); i++) {
+            int e = successors.edge(u, i);
+            line.append(i == 0 ? " " : ", ").append(graph.word(graph.target(e))).append(" (").append(graph.weight(e)).append(')');
+        }
+        System.out.println(successors.count(u) == 0 ? "\"" + graph.word(u) + "\" has no successors!" : line + ".");
     }
 
-    // 构建最短路径
-    private void buildPaths(Map<String, List<String>> predecessors, List<List<String>> paths, LinkedList<String> path, String current, String start) {
-        path.addFirst(current);
-        if (current.equals(start)) {
-            paths.add(new ArrayList<>(path));
-        } else {
-            if (predecessors.get(current) == null) return;
-            for (String predecessor : predecessors.get(current)) {
-                buildPaths(predecessors, paths, path, predecessor, start);
+    // 把 PageRank、每个单词的前 topK 个后继、度数最高的枢纽词和度分布导出为 directory 下的 CSV 文件
+    public void exportAnalytics(String directory, int topK, int threads) {
+        GraphAnalytics analytics = analytics(threads);
+        WordGraph graph = analytics.graph();
+        if (graph.isEmpty()) {
+            System.out.println("The graph is empty!");
+            return;
+        }
+        try {
+            Files.createDirectories(Paths.get(directory));
+            long begin = System.nanoTime();
+            GraphAnalytics.PageRank pageRank = analytics.pageRank();
+            System.out.printf("PageRank converged after %d iterations (delta %.2e) in %.3f s\n", pageRank.iterations,
+                    pageRank.delta, (System.nanoTime() - begin) / 1e9);
+            analytics.writePageRankCsv(Paths.get(directory, "pagerank.csv").toString(), pageRank, graph.nodeCount());
+            analytics.writeTopSuccessorsCsv(Paths.get(directory, "top_successors.csv").toString(), topK);
+            analytics.writeHubsCsv(Paths.get(directory, "hubs.csv").toString(), Math.max(topK, 100),
+                    GraphAnalytics.Degree.TOTAL);
+            analytics.writeDegreeHistogramCsv(Paths.get(directory, "degree_histogram.csv").toString());
+            System.out.print("The top words by PageRank are: ");
+            int[] top = pageRank.top(topK);
+            for (int i = 0; i < top.length; i++) {
+                System.out.print((i > 0 ? ", " : "") + graph.word(top[i]));
             }
+            System.out.println(".");
+            System.out.println("Word rankings saved to " + directory);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        path.removeFirst();
     }
 
-
     // 随机游走部分实现
     // 开启监听
     public void startStopListener() {
@@ -368,8 +671,9 @@ public class TextToDotGraph {
     }
 
     public void randomWalk(String outputFile) {
-        List<String> nodes = new ArrayList<>(graph.keySet());
-        if (nodes.isEmpty()) {
+        WordGraph graph = this.graph; // 整个查询使用同一个图版本
+        DiskGraph disk = diskGraph;
+        if (disk != null ? disk.isEmpty() : graph.isEmpty()) {
             System.out.println("The graph is empty!");
             return;
         }
@@ -377,15 +681,18 @@ public class TextToDotGraph {
         // 开启监听
         startStopListener();
 
-        String current = nodes.get(random.nextInt(nodes.size()));
-        Set<String> visitedEdges = new HashSet<>();
+        Random random = new Random();  // 每次游走使用自己的随机数
+        int current = random.nextInt(disk != null ? disk.nodeCount() : graph.nodeCount());
+        // 已经走过的边, 用 CSR 中的边下标表示; 外存模式下边数可能超出堆内存, 改为记在哈希表中
+        EdgeVisitSet visitedEdges = disk != null ? null : new EdgeVisitSet(graph.edgeCount());
+        LongIntHashMap visitedDiskEdges = disk != null ? new LongIntHashMap() : null;
         List<String> path = new ArrayList<>();
 
         while (!stopRandomWalk) {
-            path.add(current);
-            Map<String, Integer> edges = graph.get(current);
+            path.add(disk != null ? disk.word(current) : graph.word(current));
+            long edge = disk != null ? disk.randomEdge(current, queries.samplingMode(), random) : queries.nextEdge(graph, current, random);
 
-            if (edges == null || edges.isEmpty()) {
+            if (edge < 0) {
                 stopRandomWalk = true;
                 break;
             }
@@ -397,18 +704,16 @@ public class TextToDotGraph {
             }
 
 
-            List<String> nextNodes = new ArrayList<>(edges.keySet());
-            String next = nextNodes.get(random.nextInt(nextNodes.size()));
-            String edge = current + "->" + next;
+            int next = disk != null ? disk.target(edge) : graph.target((int) edge);
+            boolean firstVisit = disk != null ? visitedDiskEdges.addTo(edge, 1) == 1 : visitedEdges.add((int) edge);
 
-            if (visitedEdges.contains(edge)) {
-                path.add(next);
+            if (!firstVisit) {
+                path.add(disk != null ? disk.word(next) : graph.word(next));
                 //把重复的边的的node2也进行输出
                 stopRandomWalk = true;
                 break;
             }
 
-            visitedEdges.add(edge);
             current = next;
         }
         // 满足条件结束随机游走时自动停止监听
@@ -424,6 +729,48 @@ public class TextToDotGraph {
         System.out.println("Random walk stopped. Path saved to " + outputFile);
     }
 
+    // 批量随机游走: 用 threads 个线程生成 walkCount 条游走写入 outputFile(每行一条), 不等待也不监听键盘
+    // startWords 为空时随机选择起点, 否则依次轮流以其中的单词为起点; 图为空或起点不在图中时返回 null
+    public BatchRandomWalker.Report randomWalks(long walkCount, List<String> startWords, String outputFile, int threads) {
+        return randomWalks(walkCount, 0, startWords, outputFile, threads);
+    }
+
+    // 同上, 但在 durationMillis 毫秒内尽可能多地生成游走
+    public BatchRandomWalker.Report randomWalksFor(long durationMillis, List<String> startWords, String outputFile, int threads) {
+        return randomWalks(0, durationMillis, startWords, outputFile, threads);
+    }
+
+    // durationMillis 大于 0 时按时长生成, 否则生成 walkCount 条
+    private BatchRandomWalker.Report randomWalks(long walkCount, long durationMillis, List<String> startWords,
+                                                 String outputFile, int threads) {
+        WordGraph graph = this.graph; // 整个查询使用同一个图版本
+        if (graph.isEmpty()) {
+            System.out.println("The graph is empty!");
+            return null;
+        }
+        int[] starts = null;
+        if (startWords != null && !startWords.isEmpty()) {
+            starts = new int[startWords.size()];
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = graph.id(startWords.get(i).toLowerCase());
+                if (starts[i] < 0) {
+                    System.out.printf("No \"%s\" in the graph!\n", startWords.get(i));
+                    return null;
+                }
+            }
+        }
+        BatchRandomWalker walker = new BatchRandomWalker(graph, queries.sampler(graph), threads);
+        try {
+            BatchRandomWalker.Report report = durationMillis > 0 ? walker.generateFor(durationMillis, starts, outputFile)
+                    : walker.generate(walkCount, starts, outputFile);
+            System.out.println("Random walks saved to " + outputFile + ": " + report);
+            return report;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     // 保存随机游走路径到文件
     private void savePathToFile(List<String> path, String outputFile) {
         try (PrintWriter writer = new PrintWriter(new FileWriter(outputFile))) {
@@ -438,6 +785,18 @@ public class TextToDotGraph {
 
     public static void main(String[] args) {
         TextToDotGraph graph = new TextToDotGraph();
+        // -Dgraph.metrics=true 时注册 JMX MBean, 并按 graph.metrics.dumpSeconds 定期打印指标
+        if (GraphMetrics.ENABLED) {
+            try {
+                graph.metrics().register();
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+            long dumpSeconds = Long.getLong("graph.metrics.dumpSeconds", 0);
+            if (dumpSeconds > 0) {
+                graph.metrics().startDump(dumpSeconds, System.err);
+            }
+        }
 
         // 读取用户的命令行输入
         Scanner scanner = new Scanner(System.in);
@@ -460,6 +819,12 @@ public class TextToDotGraph {
             System.out.println("4. 计算两单词间的最短路径");
             System.out.println("5. 随机游走");
             System.out.println("6. 退出");
+            System.out.println("7. 保存图快照");
+            System.out.println("8. 载入图快照");
+            System.out.println("9. 单词排名(PageRank、高频后继、枢纽词)");
+            System.out.println("10. N 元模型(设置阶数、内存、随机游走)");
+            System.out.println("11. 外存模式(语料超出内存时构建或打开磁盘图)");
+            System.out.println("12. 批量随机游走(按条数或时长写入文件)");
             System.out.print("Enter your choice: ");
             String choice = scanner.nextLine();
 
@@ -469,7 +834,8 @@ public class TextToDotGraph {
                     String txtFile = scanner.nextLine();
                     graph.readTxt(txtFile);
                     graph.saveToDotFile("./out/text/output.dot");
-                    graph.convertDotToImage("./out/text/output.dot", "./out/png/graph.png");
+                    // 图片在后台由刚写出的 DOT 文件渲染, 不必等待
+                    graph.renderDotFileAsync("./out/text/output.dot", "./out/png/graph.png");
                     break;
 
                 case "2":
@@ -492,11 +858,17 @@ public class TextToDotGraph {
                     word1 = scanner.nextLine();
                     System.out.print("Enter the second word: ");
                     word2 = scanner.nextLine();
-                    List<List<String>> shortestPaths = graph.shortestPaths(word1, word2);
+                    // 第二个单词为空时计算第一个单词到所有单词的最短路径
+                    if (word2.isEmpty()) {
+                        graph.shortestPathsFrom(word1);
+                        break;
+                    }
+                    // 图中最多能用不同颜色标出这么多条路径
+                    List<List<String>> shortestPaths = graph.shortestPaths(word1, word2, DotWriter.PATH_COLORS.size());
 
-                    if (shortestPaths != null && !shortestPaths.isEmpty()) {
+                    if (shortestPaths != null && !shortestPaths.isEmpty() && !graph.isDiskMode()) {
                         graph.saveToDotFile_color("./out/text/output_with_path.dot", shortestPaths);
-                        graph.convertDotToImage("./out/text/output_with_path.dot", "./out/png/shortest_paths.png");
+                        graph.renderDotFileAsync("./out/text/output_with_path.dot", "./out/png/shortest_paths.png");
                     }
                     break;
 
@@ -507,10 +879,91 @@ public class TextToDotGraph {
                     break;
 
                 case "6":
+                    graph.closeRenderer();
+                    graph.metrics().close();
                     scanner.close();
                     System.out.println("Exiting...");
                     return;
 
+                case "7":
+                    System.out.print("Enter the snapshot file path: ");
+                    graph.saveSnapshot(scanner.nextLine());
+                    break;
+
+                case "8":
+                    System.out.print("Enter the snapshot file path: ");
+                    graph.loadSnapshot(scanner.nextLine());
+                    break;
+
+                case "9":
+                    System.out.print("Enter a word (empty to export all rankings to CSV): ");
+                    String word = scanner.nextLine();
+                    if (word.isEmpty()) {
+                        graph.exportAnalytics("./out/analytics", 10, Runtime.getRuntime().availableProcessors());
+                    } else {
+                        graph.printTopSuccessors(word, 10);
+                    }
+                    break;
+
+                case "10":
+                    System.out.print("Enter the n-gram order for text read afterwards (1 to disable, empty to inspect the current model): ");
+                    String order = scanner.nextLine().trim();
+                    if (!order.isEmpty()) {
+                        try {
+                            graph.setNGramOrder(Integer.parseInt(order));
+                        } catch (NumberFormatException e) {
+                            System.out.println("Invalid order: " + order);
+                        }
+                        break;
+                    }
+                    NGramModel model = graph.nGramModel();
+                    if (model == null) {
+                        System.out.println("The n-gram mode is off!");
+                        break;
+                    }
+                    System.out.println(model.footprint());
+                    GraphQueryEngine.RandomWalk walk = model.randomWalk(null, 100);
+                    if (walk != null) {
+                        System.out.println("Random walk: " + String.join(" ", walk.path));
+                    }
+                    break;
+
+                case "11":
+                    System.out.print("Enter the text file path (empty to open an existing disk graph): ");
+                    String diskText = scanner.nextLine();
+                    System.out.print("Enter the disk graph file path: ");
+                    String diskFile = scanner.nextLine();
+                    if (diskText.isEmpty()) {
+                        graph.openDiskGraph(diskFile);
+                    } else {
+                        graph.buildDiskGraph(diskText, diskFile);
+                    }
+                    break;
+
+                case "12":
+                    if (graph.isDiskMode()) {
+                        System.out.println("Batch random walks use the in-memory graph and are not available in disk mode!");
+                        break;
+                    }
+                    System.out.print("Enter the output file path for the random walks: ");
+                    String walkFile = scanner.nextLine();
+                    System.out.print("Enter the number of walks (or a duration in seconds such as 30s): ");
+                    String amount = scanner.nextLine().trim();
+                    System.out.print("Enter the start words separated by spaces (empty for random starts): ");
+                    List<String> startWords = WordTokenizer.words(scanner.nextLine());
+                    int walkThreads = Runtime.getRuntime().availableProcessors();
+                    try {
+                        if (amount.endsWith("s")) {
+                            long seconds = Long.parseLong(amount.substring(0, amount.length() - 1).trim());
+                            graph.randomWalksFor(seconds * 1000, startWords, walkFile, walkThreads);
+                        } else {
+                            graph.randomWalks(Long.parseLong(amount), startWords, walkFile, walkThreads);
+                        }
+                    } catch (NumberFormatException e) {
+                        System.out.println("Invalid number: " + amount);
+                    }
+                    break;
+
                 default:
                     System.out.println("Invalid choice. Please try again.");
                     break;
@@ -0,0 +1,11 @@
+// 分词器的批量扫描: 一次处理一整块字节, 把字母转为小写并找出单词(连续字母段)的边界
+// WordTokenizer 默认逐字节处理; 存在向量化实现(vector/VectorTokenScanner, 基于 jdk.incubator.vector)时改用它
+public interface TokenScanner {
+    // 把 src[offset, offset + count) 中的字母转为小写写入 folded[0, count)(非字母位置的内容不确定),
+    // 并把每个单词的起点和终点(相对 offset, 终点不含)依次写入 bounds, 返回写入的 int 个数;
+    // bounds 至少要有 count + 1 个元素. 块首或块尾的单词可能与相邻的块相连, 由调用方拼接
+    int scan(byte[] src, int offset, int count, byte[] folded, int[] bounds);
+
+    // 已扫描的换行符个数
+    long lines();
+}
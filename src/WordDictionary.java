@@ -0,0 +1,146 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// 单词字典: 每个单词只保存一次, 映射为从 0 开始的连续整数 ID
+public class WordDictionary {
+    private String[] words;
+    // 开放寻址表, 槽中存放 id + 1, 0 表示空槽
+    private int[] table;
+    private int[] hashes;
+    private int size;
+
+    public WordDictionary() {
+        this(16);
+    }
+
+    public WordDictionary(int expectedSize) {
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, expectedSize)) << 1);
+        words = new String[capacity];
+        hashes = new int[capacity];
+        table = new int[capacity << 1];
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String word(int id) {
+        return words[id];
+    }
+
+    // 查询单词的 ID, 不存在返回 -1
+    public int find(String word) {
+        int hash = word.hashCode();
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && words[id].equals(word)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // 返回单词的 ID, 不存在时分配新 ID
+    public int intern(String word) {
+        int hash = word.hashCode();
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && words[id].equals(word)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(word, hash, slot);
+    }
+
+    // 按字节切片(ASCII 小写字母)查询或分配 ID, 只有新单词才会创建 String
+    // 散列值与 String.hashCode() 一致, 因此与 intern(String) 共用同一张表
+    public int intern(byte[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && equalsAscii(words[id], buffer, offset, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(new String(buffer, offset, length, StandardCharsets.ISO_8859_1), hash, slot);
+    }
+
+    private static boolean equalsAscii(String word, byte[] buffer, int offset, int length) {
+        if (word.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int add(String word, int hash, int slot) {
+        int id = size++;
+        if (id == words.length) {
+            words = Arrays.copyOf(words, id << 1);
+            hashes = Arrays.copyOf(hashes, id << 1);
+        }
+        words[id] = word;
+        hashes[id] = hash;
+        table[slot] = id + 1;
+        // 装载因子超过 0.5 时扩容
+        if (size << 1 > table.length) {
+            rehash(table.length << 1);
+        }
+        return id;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(hashes[id]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    // 拷贝出一个独立的字典(单词字符串本身共享)
+    public WordDictionary copy() {
+        WordDictionary copy = new WordDictionary(0);
+        copy.words = Arrays.copyOf(words, Math.max(size, 1));
+        copy.hashes = Arrays.copyOf(hashes, Math.max(size, 1));
+        copy.table = table.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    // 估算占用的堆内存(字节), 包括单词字符串本身
+    public long estimateHeapBytes() {
+        long bytes = 16L + 4L * words.length + 16L + 4L * hashes.length + 16L + 4L * table.length + 32L;
+        for (int id = 0; id < size; id++) {
+            // String 对象头 + 字段 + byte[] (Latin1 紧凑存储)
+            bytes += 24L + 16L + ((words[id].length() + 7) & ~7);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,288 @@
+import java.util.Arrays;
+
+// 冻结后的只读有向图: 单词用整数 ID 表示, 邻接表采用 CSR(压缩稀疏行) 存储
+// 结点 u 的出边位于 [offsets[u], offsets[u + 1]), 每行按目标 ID 升序排列
+// 反向邻接表(入边)在第一次使用时生成, 每行按源结点 ID 升序排列
+public final class WordGraph {
+    public static final WordGraph EMPTY = new Builder().freeze();
+
+    private final WordDictionary dictionary;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    // 反向邻接表在第一次访问入边时才生成(只有桥接词索引、双向搜索、ALT 和 PageRank 等需要),
+    // 不查询入边的图版本(例如每次追加后发布的版本)不为它付出一倍的 CSR 内存
+    private volatile Reverse reverse;
+
+    // 反向邻接表: 结点 v 的入边位于 [inOffsets[v], inOffsets[v + 1])
+    private static final class Reverse {
+        final int[] inOffsets;
+        final int[] sources;
+        final int[] inWeights;
+
+        Reverse(int[] inOffsets, int[] sources, int[] inWeights) {
+            this.inOffsets = inOffsets;
+            this.sources = sources;
+            this.inWeights = inWeights;
+        }
+    }
+
+    WordGraph(WordDictionary dictionary, int[] offsets, int[] targets, int[] weights) {
+        this.dictionary = dictionary;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    // 多个线程同时第一次访问时可能各自生成一份, 结果相同, 只保留其中一份
+    private Reverse reverse() {
+        Reverse r = reverse;
+        if (r == null) {
+            r = buildReverse();
+            reverse = r;
+        }
+        return r;
+    }
+
+    // 计数排序生成反向邻接表, 按 u 升序遍历, 因此每行的源结点自然有序
+    private Reverse buildReverse() {
+        int nodeCount = dictionary.size();
+        int[] inOffsets = new int[nodeCount + 1];
+        int[] sources = new int[targets.length];
+        int[] inWeights = new int[targets.length];
+        for (int target : targets) {
+            inOffsets[target + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] next = Arrays.copyOf(inOffsets, nodeCount);
+        for (int u = 0; u < nodeCount; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int slot = next[targets[e]]++;
+                sources[slot] = u;
+                inWeights[slot] = weights[e];
+            }
+        }
+        return new Reverse(inOffsets, sources, inWeights);
+    }
+
+    public int nodeCount() {
+        return dictionary.size();
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    public boolean isEmpty() {
+        return dictionary.size() == 0;
+    }
+
+    // 单词 -> ID, 不存在返回 -1
+    public int id(String word) {
+        return dictionary.find(word);
+    }
+
+    public String word(int id) {
+        return dictionary.word(id);
+    }
+
+    public boolean contains(String word) {
+        return dictionary.find(word) >= 0;
+    }
+
+    // 结点 u 第一条出边的下标
+    public int edgeStart(int u) {
+        return offsets[u];
+    }
+
+    // 结点 u 最后一条出边的下一个下标
+    public int edgeEnd(int u) {
+        return offsets[u + 1];
+    }
+
+    public int outDegree(int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public int weight(int edge) {
+        return weights[edge];
+    }
+
+    // 结点 v 第一条入边的下标
+    public int inEdgeStart(int v) {
+        return reverse().inOffsets[v];
+    }
+
+    public int inEdgeEnd(int v) {
+        return reverse().inOffsets[v + 1];
+    }
+
+    public int inDegree(int v) {
+        int[] inOffsets = reverse().inOffsets;
+        return inOffsets[v + 1] - inOffsets[v];
+    }
+
+    public int source(int inEdge) {
+        return reverse().sources[inEdge];
+    }
+
+    public int inWeight(int inEdge) {
+        return reverse().inWeights[inEdge];
+    }
+
+    // 反向邻接表是否已经生成
+    public boolean hasReverse() {
+        return reverse != null;
+    }
+
+    // 二分查找边 from -> to 的下标, 不存在返回 -1
+    public int findEdge(int from, int to) {
+        int index = Arrays.binarySearch(targets, offsets[from], offsets[from + 1], to);
+        return index >= 0 ? index : -1;
+    }
+
+    public boolean hasEdge(int from, int to) {
+        return findEdge(from, to) >= 0;
+    }
+
+    // 估算占用的堆内存(字节), 只有已经生成时才计入反向邻接表
+    public long estimateHeapBytes() {
+        return 32L + dictionary.estimateHeapBytes()
+                + 16L + 4L * offsets.length
+                + 16L + 4L * targets.length
+                + 16L + 4L * weights.length
+                + (reverse != null ? estimateReverseBytes() : 0);
+    }
+
+    // 反向邻接表占用(或生成后将占用)的堆内存(字节)
+    public long estimateReverseBytes() {
+        return 16L + 3 * 16L + 4L * (dictionary.size() + 1) + 8L * targets.length;
+    }
+
+    // 可变的构建器: 负责单词驻留及边权累加, freeze() 后得到只读的 WordGraph
+    // 构建器只保存上一次冻结的图和此后新增的边权(增量), 冻结时把增量归并进 CSR,
+    // 代价为 O(E + d log d)(d 为增量中不同边的个数), 不必每次对全部边排序
+    public static final class Builder {
+        private final WordDictionary dictionary;
+        // 上一次冻结的图, 还没有冻结过时为 null
+        private WordGraph base;
+        // 键为 (from << 32) | to, 值为上一次冻结以来增加的边权
+        private final LongIntHashMap delta = new LongIntHashMap();
+
+        public Builder() {
+            this(new WordDictionary(), null);
+        }
+
+        private Builder(WordDictionary dictionary, WordGraph base) {
+            this.dictionary = dictionary;
+            this.base = base;
+        }
+
+        // 由已冻结的图继续构建, 单词 ID 与边权保持不变
+        public static Builder of(WordGraph graph) {
+            return new Builder(graph.dictionary.copy(), graph);
+        }
+
+        public int intern(String word) {
+            return dictionary.intern(word);
+        }
+
+        public int intern(byte[] buffer, int offset, int length) {
+            return dictionary.intern(buffer, offset, length);
+        }
+
+        public int find(String word) {
+            return dictionary.find(word);
+        }
+
+        public String word(int id) {
+            return dictionary.word(id);
+        }
+
+        public int nodeCount() {
+            return dictionary.size();
+        }
+
+        // 不同边的条数(包括还没有冻结的)
+        public int edgeCount() {
+            int count = base == null ? 0 : base.edgeCount();
+            for (long key : delta.keys()) {
+                if (!inBase((int) (key >>> 32), (int) key)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private boolean inBase(int from, int to) {
+            return base != null && from < base.nodeCount() && to < base.nodeCount() && base.hasEdge(from, to);
+        }
+
+        public void addEdge(int from, int to, int weight) {
+            delta.addTo(edgeKey(from, to), weight);
+        }
+
+        public static long edgeKey(int from, int to) {
+            return ((long) from << 32) | (to & 0xffffffffL);
+        }
+
+        // 生成只读快照(与之前冻结的图不共享任何可变状态), 之后构建器仍可继续使用
+        public WordGraph freeze() {
+            if (base != null && delta.size() == 0 && base.nodeCount() == dictionary.size()) {
+                return base;
+            }
+            int nodeCount = dictionary.size();
+            int baseNodes = base == null ? 0 : base.nodeCount();
+            long[] keys = delta.keys();
+            // 按 (from, to) 排序即得到增量在 CSR 中的行序与行内顺序
+            Arrays.sort(keys);
+            int edgeCount = base == null ? keys.length : base.edgeCount();
+            if (base != null) {
+                for (long key : keys) {
+                    if (!inBase((int) (key >>> 32), (int) key)) {
+                        edgeCount++;
+                    }
+                }
+            }
+            int[] offsets = new int[nodeCount + 1];
+            int[] targets = new int[edgeCount];
+            int[] weights = new int[edgeCount];
+            int k = 0;
+            int i = 0;
+            // 逐行归并旧的 CSR 行与增量中同一行的边, 两者都按目标 ID 升序
+            for (int u = 0; u < nodeCount; u++) {
+                offsets[u] = k;
+                int e = u < baseNodes ? base.edgeStart(u) : 0;
+                int end = u < baseNodes ? base.edgeEnd(u) : 0;
+                while (true) {
+                    boolean more = i < keys.length && (int) (keys[i] >>> 32) == u;
+                    if (e < end && (!more || base.target(e) <= (int) keys[i])) {
+                        int target = base.target(e);
+                        int weight = base.weight(e);
+                        if (more && target == (int) keys[i]) {
+                            weight += delta.get(keys[i++], 0);
+                        }
+                        targets[k] = target;
+                        weights[k++] = weight;
+                        e++;
+                    } else if (more) {
+                        targets[k] = (int) keys[i];
+                        weights[k++] = delta.get(keys[i++], 0);
+                    } else {
+                        break;
+                    }
+                }
+            }
+            offsets[nodeCount] = k;
+            base = new WordGraph(dictionary.copy(), offsets, targets, weights);
+            delta.clear();
+            return base;
+        }
+    }
+}
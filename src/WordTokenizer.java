@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// 逐字节切分 ASCII 字母单词的分词器, 大写字母在拷贝时即转为小写
+// 与 split("[^a-zA-Z]+") 不同, 不会产生空单词; 换行只是普通的分隔符, 所以跨行的单词依旧相连
+// 运行时带 --add-modules jdk.incubator.vector 且编译了 vector/ 目录(mvn -Pvector)时, 按块向量化地分类和转小写,
+// 否则(或 -Dgraph.tokenizer=scalar 时)自动使用逐字节的标量路径, 两者输出的单词序列完全相同
+public class WordTokenizer {
+    // 接收单词的回调, buffer 在回调返回后会被复用
+    public interface Sink {
+        void word(byte[] buffer, int length);
+    }
+
+    // 每次映射的窗口大小
+    private static final long MAP_WINDOW = 1L << 28;
+    // 从映射缓冲区批量拷贝的块大小
+    private static final int CHUNK = 1 << 16;
+
+    // 向量化扫描器的构造器, 不可用时为 null
+    private static final Constructor<? extends TokenScanner> VECTOR_SCANNER = vectorScanner();
+
+    private final Sink sink;
+    private final byte[] chunk = new byte[CHUNK];
+    private byte[] word = new byte[64];
+    private int length;
+    // 已处理的换行符个数
+    private long lines;
+    // 批量扫描器, 为 null 时逐字节处理; folded 和 bounds 是它的输出缓冲区, 每块复用
+    private final TokenScanner scanner;
+    private final byte[] folded;
+    private final int[] bounds;
+
+    public WordTokenizer(Sink sink) {
+        this(sink, newVectorScanner());
+    }
+
+    // scanner 为 null 时使用标量路径
+    WordTokenizer(Sink sink, TokenScanner scanner) {
+        this.sink = sink;
+        this.scanner = scanner;
+        this.folded = scanner == null ? null : new byte[CHUNK];
+        this.bounds = scanner == null ? null : new int[CHUNK + 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Constructor<? extends TokenScanner> vectorScanner() {
+        if (System.getProperty("graph.tokenizer", "auto").equals("scalar")) {
+            return null;
+        }
+        try {
+            Constructor<? extends TokenScanner> constructor =
+                    (Constructor<? extends TokenScanner>) Class.forName("VectorTokenScanner").getDeclaredConstructor();
+            constructor.newInstance();
+            return constructor;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // 没有编译向量化实现, 或运行时没有 jdk.incubator.vector 模块
+            return null;
+        }
+    }
+
+    // 新的向量化扫描器, 不可用时返回 null
+    static TokenScanner newVectorScanner() {
+        if (VECTOR_SCANNER == null) {
+            return null;
+        }
+        try {
+            return VECTOR_SCANNER.newInstance();
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // 是否使用向量化的分词
+    public static boolean isVectorized() {
+        return VECTOR_SCANNER != null;
+    }
+
+    // 是字母则返回其小写形式, 否则返回 -1
+    static int foldLetter(byte b) {
+        int c = b | 0x20;
+        return c >= 'a' && c <= 'z' ? c : -1;
+    }
+
+    public void feed(byte[] bytes, int offset, int count) {
+        if (scanner != null) {
+            for (int start = offset; start < offset + count; start += CHUNK) {
+                feedScanned(bytes, start, Math.min(CHUNK, offset + count - start));
+            }
+            return;
+        }
+        for (int i = offset; i < offset + count; i++) {
+            int c = foldLetter(bytes[i]);
+            if (c >= 0) {
+                if (length == word.length) {
+                    word = java.util.Arrays.copyOf(word, length << 1);
+                }
+                word[length++] = (byte) c;
+            } else {
+                if (length > 0) {
+                    sink.word(word, length);
+                    length = 0;
+                }
+                if (bytes[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+
+    // 用批量扫描器处理不超过 CHUNK 字节的一块, 并与上一块末尾未结束的单词拼接
+    private void feedScanned(byte[] bytes, int offset, int count) {
+        int k = scanner.scan(bytes, offset, count, folded, bounds);
+        // 上一块的最后一个单词在块首没有延续
+        if (length > 0 && (k == 0 || bounds[0] > 0)) {
+            sink.word(word, length);
+            length = 0;
+        }
+        for (int i = 0; i < k; i += 2) {
+            int start = bounds[i];
+            int end = bounds[i + 1];
+            if (length + end - start > word.length) {
+                word = java.util.Arrays.copyOf(word, Math.max(word.length << 1, length + end - start));
+            }
+            System.arraycopy(folded, start, word, length, end - start);
+            length += end - start;
+            // 到块尾的单词可能在下一块继续
+            if (end < count) {
+                sink.word(word, length);
+                length = 0;
+            }
+        }
+    }
+
+    // 处理 buffer 中 position 到 limit 之间的字节
+    public void feed(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            int count = Math.min(CHUNK, buffer.remaining());
+            buffer.get(chunk, 0, count);
+            feed(chunk, 0, count);
+        }
+    }
+
+    // 已处理的行数(换行符个数)
+    public long lines() {
+        return scanner == null ? lines : scanner.lines();
+    }
+
+    // 输入结束, 输出尚未结束的最后一个单词
+    public void finish() {
+        if (length > 0) {
+            sink.word(word, length);
+            length = 0;
+        }
+    }
+
+    // 以只读内存映射的方式处理文件中 [start, end) 区间, 不调用 finish()
+    public void feed(FileChannel channel, long start, long end) throws IOException {
+        for (long position = start; position < end; position += MAP_WINDOW) {
+            long size = Math.min(MAP_WINDOW, end - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            feed(buffer);
+        }
+    }
+
+    // 把一段文本切分为小写单词(与构图时的切分方式相同), 没有单词时返回空列表
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        WordTokenizer tokenizer = new WordTokenizer((buffer, length) ->
+                words.add(new String(buffer, 0, length, StandardCharsets.US_ASCII)), null);
+        tokenizer.feed(bytes, 0, bytes.length);
+        tokenizer.finish();
+        return words;
+    }
+
+    // 对整个文件分词, 返回行数(换行符个数)
+    public static long tokenizeFile(String file, Sink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            WordTokenizer tokenizer = new WordTokenizer(sink);
+            tokenizer.feed(channel, 0, channel.size());
+            tokenizer.finish();
+            return tokenizer.lines();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+// 加权采样的统计检验, 不通过时以非零状态退出:
+// 1. 别名表: 对若干出度不同(含权重悬殊的手工构造结点)的结点各抽 samples 次, 与边权成正比的期望频数做卡方检验
+// 2. 桥接词: 等概率与加权(weight(w1 -> w3) * weight(w3 -> w2))两种方式, 分别在有索引和求交两条路径上做卡方检验
+// 期望频数小于 5 的格子合并为一格; 显著性水平 0.001(自由度较大时按 Wilson-Hilferty 近似求临界值)
+// 用法: java AliasSamplerTest [每行样本数]
+public class AliasSamplerTest {
+    // 标准正态分布的 0.999 分位数
+    private static final double Z_999 = 3.0902;
+
+    public static void main(String[] args) throws IOException {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+
+        // 手工构造的结点 "hub": 权重从 1 到 5000 不等
+        WordGraph.Builder builder = new WordGraph.Builder();
+        int hub = builder.intern("hub");
+        int[] weights = {1, 1, 2, 3, 5, 8, 13, 100, 1000, 5000, 7, 1};
+        for (int i = 0; i < weights.length; i++) {
+            builder.addEdge(hub, builder.intern("leaf" + (char) ('a' + i)), weights[i]);
+        }
+        checkRows(builder.freeze(), new int[]{hub}, samples, random);
+
+        TextToDotGraph text = new TextToDotGraph();
+        Path file = Files.createTempFile("alias-sampler", ".txt");
+        try {
+            new SyntheticCorpus(2_000, 1.0, 3L).write(file.toString(), 1L << 20);
+            text.readTxt(file.toString());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        WordGraph graph = text.wordGraph();
+        checkRows(graph, rowsByDegree(graph), samples, random);
+
+        GraphQueryEngine queries = new GraphQueryEngine(graph);
+        List<int[]> pairs = bridgePairs(graph);
+        int bridgeSamples = Math.max(1, samples / 5);
+        for (boolean indexed : new boolean[]{false, true}) {
+            if (indexed) {
+                queries.enableBridgeIndex(BridgeIndex.DEFAULT_MAX_BYTES, BridgeIndex.DEFAULT_HUB_FANOUT);
+            }
+            for (SamplingMode mode : SamplingMode.values()) {
+                queries.setSamplingMode(mode);
+                for (int[] pair : pairs) {
+                    checkBridges(queries, graph, pair[0], pair[1], mode == SamplingMode.WEIGHTED, bridgeSamples, random,
+                            (indexed ? "indexed " : "intersected ") + mode.name().toLowerCase());
+                }
+            }
+        }
+        System.out.printf("bridge words: %d pairs, %d samples each, uniform and weighted, with and without the index%n",
+                pairs.size(), bridgeSamples);
+        System.out.println("OK");
+    }
+
+    // 出度从大到小的若干个结点, 以及出度在 2 到 50 之间的若干结点
+    private static int[] rowsByDegree(WordGraph graph) {
+        List<Integer> rows = new ArrayList<>();
+        int best = 0;
+        for (int u = 0; u < graph.nodeCount(); u++) {
+            if (graph.outDegree(u) > graph.outDegree(best)) {
+                best = u;
+            }
+        }
+        rows.add(best);
+        for (int u = 0; u < graph.nodeCount() && rows.size() < 6; u++) {
+            int degree = graph.outDegree(u);
+            if (degree >= 2 && degree <= 50 || degree >= 200 && degree <= 600 && rows.size() < 3) {
+                rows.add(u);
+            }
+        }
+        return rows.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void checkRows(WordGraph graph, int[] rows, int samples, Random random) {
+        AliasSampler sampler = new AliasSampler(graph);
+        for (int u : rows) {
+            int start = graph.edgeStart(u);
+            int degree = graph.outDegree(u);
+            long[] observed = new long[degree];
+            double[] expected = new double[degree];
+            long total = 0;
+            for (int i = 0; i < degree; i++) {
+                total += graph.weight(start + i);
+            }
+            for (int i = 0; i < degree; i++) {
+                expected[i] = (double) samples * graph.weight(start + i) / total;
+            }
+            for (int k = 0; k < samples; k++) {
+                observed[sampler.sampleEdge(u, random) - start]++;
+            }
+            chiSquare(observed, expected, "alias table of " + graph.word(u) + " (degree " + degree + ")");
+        }
+    }
+
+    // 有 3 个以上桥接词的若干词对, 优先选取桥接词权重不同的
+    private static List<int[]> bridgePairs(WordGraph graph) {
+        List<int[]> pairs = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(5);
+        for (int attempt = 0; attempt < 100_000 && pairs.size() < 4; attempt++) {
+            int a = random.nextInt(Math.min(graph.nodeCount(), 200));
+            int b = random.nextInt(Math.min(graph.nodeCount(), 200));
+            int[] bridges = BridgeIndex.intersect(graph, a, b);
+            if (bridges.length >= 3 && bridges.length <= 300) {
+                pairs.add(new int[]{a, b});
+            }
+        }
+        if (pairs.isEmpty()) {
+            throw new IllegalStateException("no word pair with bridge words");
+        }
+        return pairs;
+    }
+
+    private static void checkBridges(GraphQueryEngine queries, WordGraph graph, int a, int b, boolean weighted,
+                                     int samples, Random random, String what) {
+        int[] bridges = BridgeIndex.intersect(graph, a, b);
+        double[] expected = new double[bridges.length];
+        double total = 0;
+        for (int i = 0; i < bridges.length; i++) {
+            expected[i] = weighted ? (double) graph.weight(graph.findEdge(a, bridges[i]))
+                    * graph.weight(graph.findEdge(bridges[i], b)) : 1;
+            total += expected[i];
+        }
+        for (int i = 0; i < bridges.length; i++) {
+            expected[i] *= samples / total;
+        }
+        long[] observed = new long[bridges.length];
+        String word1 = graph.word(a), word2 = graph.word(b);
+        for (int k = 0; k < samples; k++) {
+            int word3 = graph.id(queries.pickBridgeWord(graph, word1, word2, random));
+            int i = java.util.Arrays.binarySearch(bridges, word3);
+            if (i < 0) {
+                throw new IllegalStateException(what + ": " + graph.word(word3) + " is not a bridge word");
+            }
+            observed[i]++;
+        }
+        chiSquare(observed, expected, what + " bridge words " + word1 + " -> " + word2);
+    }
+
+    private static void chiSquare(long[] observed, double[] expected, String what) {
+        double statistic = 0;
+        int cells = 0;
+        double pooledExpected = 0;
+        long pooledObserved = 0;
+        for (int i = 0; i < observed.length; i++) {
+            if (expected[i] < 5) {
+                pooledExpected += expected[i];
+                pooledObserved += observed[i];
+                continue;
+            }
+            double d = observed[i] - expected[i];
+            statistic += d * d / expected[i];
+            cells++;
+        }
+        if (pooledExpected > 0) {
+            double d = pooledObserved - pooledExpected;
+            statistic += d * d / pooledExpected;
+            cells++;
+        }
+        int df = cells - 1;
+        if (df <= 0) {
+            return;
+        }
+        double critical = critical(df);
+        System.out.printf("%-60s chi2 %10.2f  df %5d  critical %10.2f%n", what, statistic, df, critical);
+        if (statistic > critical) {
+            throw new IllegalStateException("sampling frequencies differ from the weights: " + what);
+        }
+    }
+
+    // 卡方分布的 0.999 分位数: 自由度 1~3 查表, 更大时用 Wilson-Hilferty 近似
+    private static double critical(int df) {
+        double[] table = {10.828, 13.816, 16.266};
+        if (df <= table.length) {
+            return table[df - 1];
+        }
+        double h = 2.0 / (9 * df);
+        double root = 1 - h + Z_999 * Math.sqrt(h);
+        return df * root * root * root;
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// 验证批量随机游走, 不通过时以非零状态退出:
+// 1. 按条数生成(1 到若干线程, 等概率与加权, 随机起点与指定起点): 文件恰好有 N 行, 每行相邻两个单词之间都有边,
+//    除最后一条边外没有重复的边; 最后一条边是第一条重复的边, 或者最后一个单词没有出边; 报告的游走数和步数与文件一致
+// 2. 按时长生成: 用时不少于指定时长, 报告的游走数等于文件行数, 每秒游走数与游走数/用时一致
+// 图中有没有出边的单词(语料的最后一个单词), 两种停止方式都会出现
+// 用法: java BatchRandomWalkTest [最大线程数] [每次游走条数]
+public class BatchRandomWalkTest {
+
+    public static void main(String[] args) throws IOException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        long walks = args.length > 1 ? Long.parseLong(args[1]) : 5_000;
+
+        Path dir = Files.createTempDirectory("batch-walk-test");
+        Path corpus = dir.resolve("corpus.txt");
+        Path output = dir.resolve("walks.txt");
+        try {
+            new SyntheticCorpus(2_000, 1.0, 9L).write(corpus.toString(), 1L << 20);
+            // 以只出现一次的单词结尾, 它没有出边
+            Files.write(corpus, " deadend".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+            TextToDotGraph text = new TextToDotGraph();
+            text.readTxt(corpus.toString());
+            WordGraph graph = text.wordGraph();
+            check(graph.outDegree(graph.id("deadend")) == 0, "the last word should have no out-edges");
+
+            long[] stops = new long[2];
+            for (int threads = 1; threads <= maxThreads; threads++) {
+                for (SamplingMode mode : SamplingMode.values()) {
+                    text.setSamplingMode(mode);
+                    List<String> starts = threads % 2 == 0 ? List.of(graph.word(0), "deadend") : List.of();
+                    BatchRandomWalker.Report report = text.randomWalks(walks, starts, output.toString(), threads);
+                    String what = threads + " threads, " + mode.name().toLowerCase();
+                    check(report != null && report.walks == walks, "reported walk count, " + what);
+                    long[] counted = verify(graph, output, starts, stops, what);
+                    check(counted[0] == walks, "expected " + walks + " lines, got " + counted[0] + ", " + what);
+                    check(counted[1] == report.steps, "reported steps, " + what);
+                }
+            }
+            check(stops[0] > 0 && stops[1] > 0, "both stop rules should occur: " + stops[0] + " repeated edges, "
+                    + stops[1] + " dead ends");
+            System.out.printf("walk counts: %d walks per run, %d ended at a repeated edge, %d at a dead end%n",
+                    walks, stops[0], stops[1]);
+
+            long duration = 300;
+            BatchRandomWalker.Report report = text.randomWalksFor(duration, List.of(), output.toString(), maxThreads);
+            check(report != null && report.walks > 0, "timed run should generate walks");
+            check(report.elapsedNanos >= duration * 1_000_000L, "timed run stopped early: " + report);
+            long[] counted = verify(graph, output, List.of(), new long[2], "timed run");
+            check(counted[0] == report.walks && counted[1] == report.steps, "timed run report " + report
+                    + " against " + counted[0] + " lines and " + counted[1] + " steps");
+            check(Math.abs(report.walksPerSecond() - report.walks * 1e9 / report.elapsedNanos) < 1e-6, "walks/s");
+            System.out.println("timed run: " + report);
+            System.out.println("OK");
+        } finally {
+            Files.deleteIfExists(corpus);
+            Files.deleteIfExists(output);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    // 检查每一行并返回 {行数, 步数}; stops 累计 {以重复的边结束, 以没有出边的结点结束} 的行数
+    private static long[] verify(WordGraph graph, Path output, List<String> starts, long[] stops, String what)
+            throws IOException {
+        long lines = 0;
+        long steps = 0;
+        Set<Long> edges = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(output, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                String[] words = line.split(" ");
+                check(starts.isEmpty() || starts.contains(words[0]), "start word " + words[0] + ", " + what);
+                edges.clear();
+                boolean repeated = false;
+                for (int i = 0; i + 1 < words.length; i++) {
+                    int from = graph.id(words[i]);
+                    int to = graph.id(words[i + 1]);
+                    check(from >= 0 && to >= 0 && graph.hasEdge(from, to), "no edge " + words[i] + " -> " + words[i + 1]);
+                    check(!repeated, "walk continued after a repeated edge: " + line);
+                    repeated = !edges.add(((long) from << 32) | to);
+                }
+                int last = graph.id(words[words.length - 1]);
+                if (repeated) {
+                    stops[0]++;
+                } else {
+                    check(graph.outDegree(last) == 0, "walk stopped without a repeated edge or a dead end: " + line);
+                    stops[1]++;
+                }
+                steps += words.length - 1;
+            }
+        }
+        return new long[]{lines, steps};
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("mismatch: " + what);
+        }
+    }
+}
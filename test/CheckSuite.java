@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// mvn test 阶段运行的全部检查: 每个检查在单独的 JVM 中以较小的参数运行(统计检验 AliasSamplerTest 用默认样本数, 样本少了卡方检验不稳定),
+// 有一个失败时以非零状态退出
+// 编译了 vector/ 目录(mvn -Pvector test)时子 JVM 带 add-modules jdk.incubator.vector, 同时检查向量化分词
+// 用法: java -cp target/classes:target/test-classes CheckSuite [检查类名...]
+public class CheckSuite {
+
+    // {类名, 参数...}
+    private static final String[][] CHECKS = {
+            {"ParallelBuildEquivalenceTest", "4", "2"},
+            {"AliasSamplerTest"},
+            {"GraphRendererTest"},
+            {"DiskGraphIngestTest", "4000000", "32", "20000"},
+            {"TokenizerEquivalenceTest", "4"},
+            {"BatchRandomWalkTest", "2", "1000"},
+            {"VersionedGraphTest", "20", "2", "1"},
+            {"GraphAnalyticsTest", "4", "1"},
+            {"GraphLoadTest", "2000000", "2", "1", "100", "5000"},
+    };
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> only = Arrays.asList(args);
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        boolean vector = ClassLoader.getSystemResource("VectorTokenScanner.class") != null;
+        List<String> failed = new ArrayList<>();
+        int run = 0;
+        for (String[] check : CHECKS) {
+            String name = check[0];
+            if (!only.isEmpty() && !only.contains(name)) {
+                continue;
+            }
+            // GraphRendererTest 用 /bin/sh 脚本代替 dot
+            if (name.equals("GraphRendererTest") && !Files.isExecutable(Paths.get("/bin/sh"))) {
+                System.out.println("== " + name + ": skipped, needs /bin/sh");
+                continue;
+            }
+            List<String> cmd = new ArrayList<>(List.of(java));
+            if (vector) {
+                cmd.addAll(List.of("--add-modules", "jdk.incubator.vector"));
+            }
+            cmd.addAll(List.of("-cp", System.getProperty("java.class.path"), name));
+            cmd.addAll(Arrays.asList(check).subList(1, check.length));
+            System.out.println("== " + String.join(" ", Arrays.asList(check)));
+            ProcessBuilder builder = new ProcessBuilder(cmd).inheritIO();
+            Path log = null;
+            if (name.equals("GraphRendererTest")) {
+                // 它的假 dot 会向标准错误写大量数据, 只在失败时输出
+                log = Files.createTempFile("check-suite", ".log");
+                builder.redirectError(log.toFile());
+            }
+            long begin = System.nanoTime();
+            int status = builder.start().waitFor();
+            if (log != null) {
+                if (status != 0) {
+                    List<String> lines = Files.readAllLines(log);
+                    lines.subList(Math.max(0, lines.size() - 50), lines.size()).forEach(System.err::println);
+                }
+                Files.deleteIfExists(log);
+            }
+            System.out.printf("== %s: %s in %.1f s%n", name, status == 0 ? "passed" : "FAILED (exit " + status + ")",
+                    (System.nanoTime() - begin) / 1e9);
+            run++;
+            if (status != 0) {
+                failed.add(name);
+            }
+        }
+        if (run == 0 && !only.isEmpty()) {
+            System.err.println("unknown checks: " + only);
+            System.exit(2);
+        }
+        if (!failed.isEmpty()) {
+            System.err.println(failed.size() + " of " + run + " checks failed: " + failed);
+            System.exit(1);
+        }
+        System.out.println("all " + run + " checks passed");
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// 外存模式的验证, 任何一步失败都以非零状态退出:
+// 1. 在小语料上用很小的运行文件(强制多轮归并)构建磁盘图, 与内存中的 WordGraph 逐条比较出边和入边, 并抽查桥接词、
+//    单源最短路径(距离和第一个前驱)、生成文本与两种采样方式的随机游走
+// 2. 生成比子进程 -Xmx 大若干倍的合成语料, 在受限堆的子 JVM 中构建磁盘图并查询, 报告堆内存峰值;
+//    再在同样受限的子 JVM 中用 readTxt 读入同一语料作为对照(预期堆内存不足)
+// 用法: java DiskGraphIngestTest [语料字节数] [子进程堆 MB] [词汇量]
+public class DiskGraphIngestTest {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--disk")) {
+            diskChild(args[1], args[2]);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--memory")) {
+            new TextToDotGraph().readTxt(args[1]);
+            System.out.println("in-memory graph built");
+            return;
+        }
+        long bytes = args.length > 0 ? Long.parseLong(args[0]) : 256L << 20;
+        int heapMb = args.length > 1 ? Integer.parseInt(args[1]) : 48;
+        int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        Path dir = Files.createTempDirectory("disk-graph-test");
+        Path corpus = dir.resolve("corpus.txt");
+        Path graphFile = dir.resolve("graph.wgdk");
+        try {
+            compareWithWordGraph(dir);
+
+            new SyntheticCorpus(vocabulary, 1.0, 42L).write(corpus.toString(), bytes);
+            System.out.printf("corpus %.1f MB, child heap -Xmx%dm (%.1fx)%n", Files.size(corpus) / 1e6, heapMb,
+                    Files.size(corpus) / (heapMb * 1048576.0));
+            if (runChild(heapMb, "--disk", corpus.toString(), graphFile.toString()) != 0) {
+                throw new IllegalStateException("out-of-core build failed under -Xmx" + heapMb + "m");
+            }
+            Files.deleteIfExists(graphFile);
+            int exit = runChild(heapMb, "--memory", corpus.toString());
+            System.out.println(exit != 0 ? "in-memory readTxt failed under the same heap, as expected"
+                    : "in-memory readTxt also fit in the heap; use a larger corpus to show the difference");
+            System.out.println("OK");
+        } finally {
+            Files.deleteIfExists(corpus);
+            Files.deleteIfExists(graphFile);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    // 小语料上磁盘图与 WordGraph 必须完全相同
+    private static void compareWithWordGraph(Path dir) throws IOException {
+        Path corpus = dir.resolve("small.txt");
+        Path graphFile = dir.resolve("small.wgdk");
+        try {
+            new SyntheticCorpus(20_000, 1.0, 7L).write(corpus.toString(), 4L << 20);
+            TextToDotGraph text = new TextToDotGraph();
+            text.readTxt(corpus.toString());
+            WordGraph graph = text.wordGraph();
+            // 每个运行文件只有 4096 条边, 运行文件多于 MAX_FAN_IN 个, 需要多轮归并
+            DiskGraph disk = DiskGraph.build(corpus.toString(), graphFile.toString(), 4096);
+            check(disk.nodeCount() == graph.nodeCount() && disk.edgeCount() == graph.edgeCount(), "graph size");
+            for (int u = 0; u < graph.nodeCount(); u++) {
+                check(disk.word(u).equals(graph.word(u)), "word " + u);
+                check(disk.edgeStart(u) == graph.edgeStart(u) && disk.inEdgeStart(u) == graph.inEdgeStart(u),
+                        "offsets of " + u);
+            }
+            for (int e = 0; e < graph.edgeCount(); e++) {
+                check(disk.target(e) == graph.target(e) && disk.weight(e) == graph.weight(e), "edge " + e);
+                check(disk.source(e) == graph.source(e) && disk.inWeight(e) == graph.inWeight(e), "in-edge " + e);
+            }
+            GraphQueryEngine queries = text.queries();
+            Random random = new Random(1);
+            for (int i = 0; i < 500; i++) {
+                // 偏向高频词, 使大部分查询有结果
+                String a = graph.word(random.nextInt(Math.min(graph.nodeCount(), 1 + random.nextInt(2000))));
+                String b = graph.word(random.nextInt(Math.min(graph.nodeCount(), 1 + random.nextInt(2000))));
+                check(disk.bridgeWords(a, b).bridges.equals(queries.bridgeWords(a, b).bridges), "bridge words " + a + " " + b);
+                GraphQueryEngine.ShortestPaths expected = queries.shortestPaths(a, b, 5);
+                GraphQueryEngine.ShortestPaths actual = disk.shortestPaths(a, b, 5);
+                check(actual.distance == expected.distance && actual.totalPaths == expected.totalPaths
+                        && actual.paths.equals(expected.paths), "shortest paths " + a + " " + b);
+                SamplingMode mode = SamplingMode.values()[i % 2];
+                GraphQueryEngine.RandomWalk walk = disk.randomWalk(a, 1000, mode, random);
+                for (int k = 0; k + 1 < walk.path.size(); k++) {
+                    check(graph.hasEdge(graph.id(walk.path.get(k)), graph.id(walk.path.get(k + 1))), "random walk");
+                }
+                String bridge = disk.pickBridgeWord(a, b, mode, random);
+                List<String> bridges = queries.bridgeWords(a, b).bridges;
+                check(bridge == null ? bridges.isEmpty() : bridges.contains(bridge), "bridge word " + a + " " + b);
+                String newText = disk.generateNewText(", " + a + " " + b, mode, random);
+                check(newText.equals(a + " " + b) || newText.equals(a + " " + bridge(newText) + " " + b)
+                        && bridges.contains(bridge(newText)), "generated text " + newText);
+            }
+            int[] firstPred = new int[disk.nodeCount()];
+            for (int i = 0; i < 5; i++) {
+                int start = random.nextInt(Math.min(graph.nodeCount(), 2000));
+                int[] dist = disk.shortestDistances(start, firstPred);
+                ShortestPathTree tree = queries.shortestPathTree(graph, start);
+                for (int v = 0; v < graph.nodeCount(); v++) {
+                    check(dist[v] == tree.distance(v), "distance " + start + " -> " + v);
+                    if (v != start && tree.isReachable(v)) {
+                        check(firstPred[v] == tree.pred(tree.predStart(v)), "first predecessor " + start + " -> " + v);
+                    }
+                }
+            }
+            System.out.printf("disk graph matches the in-memory graph: %d nodes, %d edges%n", graph.nodeCount(),
+                    graph.edgeCount());
+        } finally {
+            Files.deleteIfExists(corpus);
+            Files.deleteIfExists(graphFile);
+        }
+    }
+
+    // 生成的 "a x b" 中间的桥接词
+    private static String bridge(String newText) {
+        String[] words = newText.split(" ");
+        return words.length == 3 ? words[1] : null;
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("mismatch: " + what);
+        }
+    }
+
+    // 子进程: 在受限的堆中构建磁盘图并查询
+    private static void diskChild(String corpus, String graphFile) throws IOException {
+        long begin = System.nanoTime();
+        DiskGraph disk = DiskGraph.build(corpus, graphFile);
+        System.out.printf("disk graph: %d nodes, %d edges, file %.1f MB, built in %.1f s%n", disk.nodeCount(),
+                disk.edgeCount(), Files.size(Paths.get(graphFile)) / 1e6, (System.nanoTime() - begin) / 1e9);
+        // 排名最靠前的单词是 "a", "b", ...
+        begin = System.nanoTime();
+        GraphQueryEngine.BridgeWords bridges = disk.bridgeWords("a", "b");
+        GraphQueryEngine.ShortestPaths paths = disk.shortestPaths("a", "zz", 5);
+        GraphQueryEngine.RandomWalk walk = disk.randomWalk("a", 10_000);
+        System.out.printf("%d bridge words a -> b, shortest a -> zz of length %d (%d paths), random walk of %d words,"
+                        + " in %.1f ms%n", bridges.bridges.size(), paths.distance, paths.totalPaths, walk.path.size(),
+                (System.nanoTime() - begin) / 1e6);
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.printf("max heap %.1f MB, peak heap use %.1f MB, dictionary %.1f MB%n",
+                Runtime.getRuntime().maxMemory() / 1e6, peak / 1e6, disk.estimateHeapBytes() / 1e6);
+    }
+
+    private static int runChild(int heapMb, String... args) throws IOException, InterruptedException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> cmd = new ArrayList<>(List.of(java, "-Xmx" + heapMb + "m", "-cp",
+                System.getProperty("java.class.path"), DiskGraphIngestTest.class.getName()));
+        cmd.addAll(List.of(args));
+        Process process = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // 堆内存不足时只打印异常的第一行
+                if (!line.startsWith("\tat ")) {
+                    System.out.println("  " + line);
+                }
+            }
+        }
+        return process.waitFor();
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+// 验证单词排名, 不通过时以非零状态退出:
+// 1. PageRank 与朴素的逐边推送实现(顺序执行, 同样的公式和停止条件)一致, 排名之和为 1
+// 2. 1 到若干线程的 PageRank 逐位相同(迭代次数、最后一轮变化量、每个排名), 即按块并行的求和顺序与线程数无关
+// 3. PageRank.top、hubs 和 topSuccessors 的结果与完整排序后取前 k 个相同(相同时 ID 小的在前)
+// 语料的结点数是并行块大小的若干倍, 并以一个没有出边的单词结尾(悬挂结点)
+// 用法: java GraphAnalyticsTest [最大线程数] [语料 MB]
+public class GraphAnalyticsTest {
+
+    public static void main(String[] args) throws IOException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                : Math.max(8, Runtime.getRuntime().availableProcessors());
+        int megabytes = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+        TextToDotGraph text = new TextToDotGraph();
+        Path file = Files.createTempFile("graph-analytics", ".txt");
+        try {
+            new SyntheticCorpus(50_000, 1.0, 23L).write(file.toString(), (long) megabytes << 20);
+            Files.write(file, " deadend".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+            text.readTxt(file.toString());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        WordGraph graph = text.wordGraph();
+        check(graph.outDegree(graph.id("deadend")) == 0, "the last word should be a dangling node");
+
+        // 1. 与朴素实现比较
+        GraphAnalytics.PageRank expected = new GraphAnalytics(graph, 1).pageRank();
+        double[] naive = naivePageRank(graph, GraphAnalytics.DEFAULT_DAMPING, GraphAnalytics.DEFAULT_TOLERANCE,
+                GraphAnalytics.DEFAULT_MAX_ITERATIONS);
+        double maxError = 0;
+        double total = 0;
+        for (int v = 0; v < naive.length; v++) {
+            maxError = Math.max(maxError, Math.abs(naive[v] - expected.ranks[v]));
+            total += expected.ranks[v];
+        }
+        check(maxError < 1e-12, "PageRank differs from the naive implementation by " + maxError);
+        check(Math.abs(total - 1) < 1e-9, "ranks should sum to 1, got " + total);
+        System.out.printf("PageRank: %d nodes, %d iterations, max difference from the naive version %.2e%n",
+                graph.nodeCount(), expected.iterations, maxError);
+
+        // 2. 与线程数无关
+        for (int threads = 2; threads <= maxThreads; threads++) {
+            GraphAnalytics.PageRank actual = new GraphAnalytics(graph, threads).pageRank();
+            check(actual.iterations == expected.iterations
+                            && Double.doubleToLongBits(actual.delta) == Double.doubleToLongBits(expected.delta)
+                            && Arrays.equals(actual.ranks, expected.ranks),
+                    "PageRank with " + threads + " threads is not bit-identical to 1 thread");
+        }
+        System.out.printf("PageRank with 1..%d threads is bit-identical%n", maxThreads);
+
+        // 3. 前 k 个与完整排序相同
+        GraphAnalytics analytics = new GraphAnalytics(graph, maxThreads);
+        int n = graph.nodeCount();
+        for (int k : new int[]{1, 10, 1000, n + 5}) {
+            double[] ranks = expected.ranks;
+            check(Arrays.equals(expected.top(k), sorted(n, k, Comparator.comparingDouble((Integer v) -> -ranks[v]))),
+                    "PageRank top " + k);
+            for (GraphAnalytics.Degree degree : GraphAnalytics.Degree.values()) {
+                check(Arrays.equals(analytics.hubs(k, degree),
+                        sorted(n, k, Comparator.comparingInt((Integer v) -> -analytics.degree(v, degree)))),
+                        "hubs top " + k + " by " + degree);
+            }
+        }
+        for (int k : new int[]{1, 3, 50}) {
+            GraphAnalytics.TopSuccessors top = new GraphAnalytics(graph, maxThreads).topSuccessors(k);
+            for (int u = 0; u < n; u++) {
+                Integer[] edges = IntStream.range(graph.edgeStart(u), graph.edgeEnd(u)).boxed().toArray(Integer[]::new);
+                Arrays.sort(edges, Comparator.comparingInt((Integer e) -> -graph.weight(e)).thenComparingInt(graph::target));
+                check(top.count(u) == Math.min(k, edges.length), "successor count of " + graph.word(u));
+                for (int i = 0; i < top.count(u); i++) {
+                    check(top.edge(u, i) == edges[i], "successor " + i + " of " + graph.word(u) + ", k = " + k);
+                }
+            }
+        }
+        System.out.println("top-k PageRank, hubs and successors match a full sort");
+        System.out.println("OK");
+    }
+
+    // 顺序执行的加权 PageRank: 沿出边把 rank * weight / outWeight 推给后继, 悬挂结点的排名均匀分给所有结点
+    private static double[] naivePageRank(WordGraph graph, double damping, double tolerance, int maxIterations) {
+        int n = graph.nodeCount();
+        double[] rank = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            double dangling = 0;
+            double[] next = new double[n];
+            for (int u = 0; u < n; u++) {
+                long outWeight = 0;
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    outWeight += graph.weight(e);
+                }
+                if (outWeight == 0) {
+                    dangling += rank[u];
+                    continue;
+                }
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    next[graph.target(e)] += damping * rank[u] * graph.weight(e) / outWeight;
+                }
+            }
+            double base = (1 - damping + damping * dangling) / n;
+            double delta = 0;
+            for (int v = 0; v < n; v++) {
+                next[v] += base;
+                delta += Math.abs(next[v] - rank[v]);
+            }
+            rank = next;
+            if (delta < tolerance) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    // 按 order 完整排序(相同时 ID 小的在前)后的前 k 个结点
+    private static int[] sorted(int n, int k, Comparator<Integer> order) {
+        Integer[] nodes = IntStream.range(0, n).boxed().toArray(Integer[]::new);
+        Arrays.sort(nodes, order.thenComparingInt(v -> v));
+        return Arrays.stream(nodes).limit(Math.min(k, n)).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("mismatch: " + what);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// GraphServer 压力测试: 在本机启动服务, 用 concurrency 个客户端线程循环发送请求(收到响应后立即发下一个),
+// 分别测试单个桥接词、单个最短路径和批量桥接词请求, 报告 QPS 和延迟的 p50/p99
+// 用法: java GraphLoadTest [语料字节数] [并发数] [每项秒数] [批量大小] [词汇量]
+public class GraphLoadTest {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long bytes = args.length > 0 ? Long.parseLong(args[0]) : 20L << 20;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        int vocabulary = args.length > 4 ? Integer.parseInt(args[4]) : 100_000;
+
+        SyntheticCorpus corpus = new SyntheticCorpus(vocabulary, 1.0, 42L);
+        Path file = Files.createTempFile("corpus", ".txt");
+        TextToDotGraph graph = new TextToDotGraph();
+        try {
+            corpus.write(file.toString(), bytes);
+            graph.readTxt(file.toString());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        String[] words = new String[1 << 12];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = URLEncoder.encode(corpus.wordAt(corpus.sample(random)), StandardCharsets.UTF_8);
+        }
+
+        try (GraphServer server = new GraphServer(graph.queries(), 0, concurrency).start()) {
+            String base = server.url();
+            HttpClient client = HttpClient.newHttpClient();
+            System.out.printf("%d nodes, %d edges, %d clients, %s%n", graph.wordGraph().nodeCount(),
+                    graph.wordGraph().edgeCount(), concurrency, base);
+            Function<ThreadLocalRandom, HttpRequest> bridge = r -> HttpRequest.newBuilder(URI.create(base
+                    + "/bridge-words?word1=" + pick(words, r) + "&word2=" + pick(words, r))).build();
+            Function<ThreadLocalRandom, HttpRequest> path = r -> HttpRequest.newBuilder(URI.create(base
+                    + "/shortest-path?start=" + pick(words, r) + "&end=" + pick(words, r))).build();
+            Function<ThreadLocalRandom, HttpRequest> batch = r -> {
+                StringBuilder body = new StringBuilder();
+                for (int i = 0; i < batchSize; i++) {
+                    body.append(pick(words, r)).append(' ').append(pick(words, r)).append('\n');
+                }
+                return HttpRequest.newBuilder(URI.create(base + "/batch?op=bridge-words"))
+                        .POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+            };
+            // 预热
+            run(client, bridge, concurrency, Math.min(seconds, 2));
+            report("bridge-words", run(client, bridge, concurrency, seconds), seconds, 1);
+            report("shortest-path", run(client, path, concurrency, seconds), seconds, 1);
+            report("batch x" + batchSize, run(client, batch, concurrency, seconds), seconds, batchSize);
+        }
+    }
+
+    // 随机取一个(已做 URL 编码的)单词
+    private static String pick(String[] words, ThreadLocalRandom random) {
+        return words[random.nextInt(words.length)];
+    }
+
+    // 返回所有请求的延迟(纳秒)
+    private static long[] run(HttpClient client, Function<ThreadLocalRandom, HttpRequest> requests, int concurrency,
+                              double seconds) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<long[]> latencies = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < concurrency; t++) {
+            int slot = t;
+            latencies.add(null);
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long[] times = new long[1024];
+                int count = 0;
+                try {
+                    start.await();
+                    while (!stop.get()) {
+                        HttpRequest request = requests.apply(random);
+                        long begin = System.nanoTime();
+                        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        long elapsed = System.nanoTime() - begin;
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == times.length) {
+                            times = Arrays.copyOf(times, count * 2);
+                        }
+                        times[count++] = elapsed;
+                    }
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                latencies.set(slot, Arrays.copyOf(times, count));
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        Thread.sleep((long) (seconds * 1000));
+        stop.set(true);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (errors.get() > 0) {
+            System.out.println("  " + errors.get() + " failed requests");
+        }
+        return latencies.stream().flatMapToLong(Arrays::stream).toArray();
+    }
+
+    private static void report(String name, long[] nanos, double seconds, int pairsPerRequest) {
+        if (nanos.length == 0) {
+            System.out.printf("%-16s no completed requests%n", name);
+            return;
+        }
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double qps = sorted.length / seconds;
+        System.out.printf("%-16s %8.0f req/s  %9.0f pairs/s  p50 %8.2f ms  p99 %8.2f ms%n", name, qps,
+                qps * pairsPerRequest, sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6);
+    }
+}
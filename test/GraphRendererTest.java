@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+// 用一个 shell 脚本代替 dot 验证后台渲染(通过 setDotCommand 设置), 任何一项失败都以非零状态退出:
+// 1. 脚本先向标准错误写 1MB 再读标准输入: 必须正常完成(不会因为管道写满而互相等待), 输出即为 DOT 内容
+// 2. 同样的图再渲染一次, 以及渲染写出的同一内容的 DOT 文件: 都命中 SHA-256 缓存, 不再启动进程
+// 3. 脚本以非零状态退出: 在 Result 中报告退出码和标准错误, 不写图片也不缓存
+// 4. 脚本一直不退出: 超时后任务失败, 进程被结束
+// 需要 /bin/sh; 用法: java GraphRendererTest
+public class GraphRendererTest {
+    private static final String SCRIPT = String.join("\n",
+            "#!/bin/sh",
+            "case \"$1\" in",
+            "noisy) head -c 1048576 /dev/zero | tr '\\000' x >&2; cat ;;",
+            "fail) cat > /dev/null; echo 'Error: syntax error in line 1' >&2; exit 3 ;;",
+            "hang) echo $$ > \"$2\"; exec sleep 60 ;;",
+            "esac",
+            "");
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("graph-renderer-test");
+        Path script = dir.resolve("fake-dot.sh");
+        Files.write(script, SCRIPT.getBytes(StandardCharsets.US_ASCII));
+        System.setProperty("graphviz.timeout", "2000");
+
+        TextToDotGraph graph = new TextToDotGraph();
+        // 足够大的图, 使 DOT 内容超过管道缓冲区
+        SyntheticCorpus corpus = new SyntheticCorpus(3_000, 1.0, 1L);
+        SplittableRandom random = new SplittableRandom(1);
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            line.append(corpus.wordAt(corpus.sample(random))).append(' ');
+        }
+        graph.appendLines(List.of(line.toString()));
+        try {
+            // 1. 大量标准错误输出
+            use(graph, dir, "cache1", "noisy");
+            Path image = dir.resolve("noisy.png");
+            long begin = System.nanoTime();
+            GraphRenderer.Result result = graph.renderImageAsync(image.toString(), Collections.emptyList()).get();
+            check(result.succeeded() && !result.cached, "noisy render should succeed: " + result);
+            check(startsWith(image, "digraph"), "the image should be the DOT streamed into the stand-in");
+            check(Files.size(image) > (1 << 16), "the DOT should be larger than a pipe buffer");
+            check(result.messages.length() >= (1 << 16) && result.messages.length() < (1 << 17),
+                    "stderr should be drained and capped, got " + result.messages.length() + " chars");
+            System.out.printf("1 MB of stderr drained, %d bytes streamed in %.1f ms%n", Files.size(image),
+                    (System.nanoTime() - begin) / 1e6);
+
+            // 2. 内容相同, 命中缓存
+            Path again = dir.resolve("again.png");
+            result = graph.renderImageAsync(again.toString(), Collections.emptyList()).get();
+            check(result.succeeded() && result.cached, "second identical render should hit the cache: " + result);
+            check(Arrays.equals(Files.readAllBytes(image), Files.readAllBytes(again)), "cached image should match");
+            System.out.println("second identical render: " + result);
+            Path dotFile = dir.resolve("graph.dot");
+            graph.saveToDotFile(dotFile.toString());
+            Path fromFile = dir.resolve("from-file.png");
+            result = graph.renderDotFileAsync(dotFile.toString(), fromFile.toString()).get();
+            check(result.succeeded() && result.cached, "rendering the same DOT from a file should hit the cache: " + result);
+            check(Arrays.equals(Files.readAllBytes(image), Files.readAllBytes(fromFile)), "image rendered from the file should match");
+            System.out.println("same DOT from a file: " + result);
+
+            // 3. 非零退出码
+            use(graph, dir, "cache3", "fail");
+            Path failed = dir.resolve("failed.png");
+            result = graph.renderImageAsync(failed.toString(), Collections.emptyList()).get();
+            check(!result.succeeded() && result.exitCode == 3, "exit code 3 should be reported: " + result);
+            check(result.messages.contains("syntax error"), "stderr should be reported: " + result.messages);
+            check(!Files.exists(failed), "no image should be written for a failed render");
+            check(cacheEntries(dir.resolve("cache3")) == 0, "a failed render should not be cached");
+            System.out.println("non-zero exit: " + result);
+
+            // 4. 超时
+            Path pidFile = dir.resolve("pid");
+            use(graph, dir, "cache4", "hang", pidFile.toString());
+            begin = System.nanoTime();
+            try {
+                result = graph.renderImageAsync(dir.resolve("hang.png").toString(), Collections.emptyList()).get();
+                throw new IllegalStateException("a hanging render should time out, got " + result);
+            } catch (ExecutionException e) {
+                check(e.getCause() instanceof TimeoutException, "expected a timeout, got " + e.getCause());
+            }
+            long pid = Long.parseLong(new String(Files.readAllBytes(pidFile), StandardCharsets.US_ASCII).trim());
+            // destroyForcibly 是异步的, 稍等进程退出
+            for (int i = 0; i < 50 && ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false); i++) {
+                Thread.sleep(20);
+            }
+            check(!ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false), "the timed-out process should be killed");
+            System.out.printf("timed out and killed process %d after %.0f ms%n", pid, (System.nanoTime() - begin) / 1e6);
+            System.out.println("OK");
+        } finally {
+            graph.closeRenderer();
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // 换用脚本的另一种模式, 每种模式使用单独的缓存目录
+    private static void use(TextToDotGraph graph, Path dir, String cache, String... mode) {
+        System.setProperty("graphviz.cache", dir.resolve(cache).toString());
+        List<String> command = new ArrayList<>(List.of("/bin/sh", dir.resolve("fake-dot.sh").toString()));
+        command.addAll(List.of(mode));
+        graph.setDotCommand(command);
+    }
+
+    private static boolean startsWith(Path file, String prefix) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        return new String(bytes, 0, Math.min(bytes.length, prefix.length()), StandardCharsets.US_ASCII).equals(prefix);
+    }
+
+    private static long cacheEntries(Path cache) throws IOException {
+        if (!Files.exists(cache)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(cache)) {
+            return files.count();
+        }
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException(what);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// 验证并行构图与顺序构图得到完全相同的图, 不一致时以非零状态退出:
+// 单词 ID、CSR 的 offsets/targets/weights、根结点和最后一个单词都必须相同
+// 语料由多段合成文本拼接而成, 中间夹有比一块还长的单词(切点落在其中时整块为空)、只有标点的段落,
+// 切点大多落在单词中间, 因此覆盖了跨越块边界的单词和接缝边; 每种线程数还会再追加第二个文件
+// 用法: java ParallelBuildEquivalenceTest [最大线程数] [语料 MB]
+public class ParallelBuildEquivalenceTest {
+
+    public static void main(String[] args) throws IOException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                : Math.max(8, Runtime.getRuntime().availableProcessors());
+        int megabytes = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+
+        Path dir = Files.createTempDirectory("parallel-build-test");
+        Path first = dir.resolve("first.txt");
+        Path second = dir.resolve("second.txt");
+        Path tiny = dir.resolve("tiny.txt");
+        try {
+            Files.write(first, corpus(megabytes));
+            // 第二个文件以单词开头, 与第一个文件的最后一个单词相连
+            Files.write(second, corpus(3));
+            Files.write(tiny, "Seam".getBytes());
+
+            TextToDotGraph expected = new TextToDotGraph();
+            expected.readTxt(first.toString());
+            expected.readTxt(second.toString());
+            expected.readTxt(tiny.toString());
+            for (int threads = 2; threads <= maxThreads; threads++) {
+                TextToDotGraph actual = new TextToDotGraph();
+                actual.readTxt(first.toString(), threads);
+                actual.readTxt(second.toString(), threads);
+                actual.readTxt(tiny.toString(), threads);
+                compare(expected, actual, threads);
+            }
+            WordGraph graph = expected.wordGraph();
+            System.out.printf("parallel builds with 2..%d threads match the sequential build: %d nodes, %d edges%n",
+                    maxThreads, graph.nodeCount(), graph.edgeCount());
+
+            // 空文件和只有分隔符的文件
+            Files.write(tiny, new byte[0]);
+            TextToDotGraph empty = new TextToDotGraph();
+            empty.readTxt(tiny.toString(), maxThreads);
+            check(empty.wordGraph().isEmpty() && empty.rootWord() == null && empty.lastWord() == null, "empty file");
+            Files.write(tiny, " ,.\n\n".getBytes());
+            empty.readTxt(tiny.toString(), maxThreads);
+            check(empty.wordGraph().isEmpty() && empty.lastWord() == null, "separator-only file");
+            System.out.println("OK");
+        } finally {
+            Files.deleteIfExists(first);
+            Files.deleteIfExists(second);
+            Files.deleteIfExists(tiny);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    // 若干段合成文本, 段之间插入一个 3MB 的长单词和一段只有标点的文本
+    private static byte[] corpus(int megabytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long part = ((long) megabytes << 20) / 3;
+        new SyntheticCorpus(50_000, 1.0, 11L).write(out, part);
+        repeat(out, 'Z', 3 << 20);
+        out.write(' ');
+        new SyntheticCorpus(50_000, 1.0, 12L).write(out, part);
+        repeat(out, '.', 1 << 20);
+        new SyntheticCorpus(50_000, 1.0, 13L).write(out, part);
+        // 以单词结尾(没有换行), 最后一个单词就在文件末尾
+        out.write("tail".getBytes());
+        return out.toByteArray();
+    }
+
+    private static void repeat(OutputStream out, char c, int count) throws IOException {
+        byte[] bytes = new byte[count];
+        Arrays.fill(bytes, (byte) c);
+        out.write(bytes);
+    }
+
+    private static void compare(TextToDotGraph expected, TextToDotGraph actual, int threads) {
+        WordGraph a = expected.wordGraph();
+        WordGraph b = actual.wordGraph();
+        String where = " with " + threads + " threads";
+        check(a.nodeCount() == b.nodeCount() && a.edgeCount() == b.edgeCount(), "graph size" + where);
+        for (int u = 0; u < a.nodeCount(); u++) {
+            check(a.word(u).equals(b.word(u)), "word " + u + where);
+            check(a.edgeStart(u) == b.edgeStart(u), "offset of " + a.word(u) + where);
+        }
+        for (int e = 0; e < a.edgeCount(); e++) {
+            check(a.target(e) == b.target(e) && a.weight(e) == b.weight(e), "edge " + e + where);
+        }
+        check(expected.rootWord().equals(actual.rootWord()), "root word" + where);
+        check(expected.lastWord().equals(actual.lastWord()), "last word" + where);
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("mismatch: " + what);
+        }
+    }
+}
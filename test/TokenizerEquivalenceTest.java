@@ -0,0 +1,157 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// 验证向量化分词与标量分词输出完全相同的单词序列和行数, 并比较两者的吞吐量; 不一致时以非零状态退出
+// 1. 随机字节(包括 0x80 以上的字节、大小写字母、换行)按随机的块大小喂入, 与 split("[^a-zA-Z]+") 的结果比较
+// 2. 跨越多个块的长单词、只有分隔符的输入等边界情况
+// 3. 合成语料: 比较两条路径单词序列的哈希、单词数和行数; 吞吐量在 1、2 之前测量(见 main 中的说明)
+// 向量化实现不可用时只验证标量路径(自动回退)
+// 用法: mvn -B -Pvector compile && java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes TokenizerEquivalenceTest [语料 MB]
+public class TokenizerEquivalenceTest {
+
+    public static void main(String[] args) throws IOException {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        boolean vector = WordTokenizer.newVectorScanner() != null;
+        System.out.println(vector ? "vector tokenizer: " + WordTokenizer.newVectorScanner().getClass().getName()
+                : "vector tokenizer unavailable (needs mvn -Pvector and --add-modules jdk.incubator.vector), checking the scalar fallback");
+
+        // 先测吞吐量: 后面的验证换用多种 Sink, 会使 WordTokenizer 中 sink.word 的调用点变成多态, 不再内联,
+        // 测得的是这次调用的开销而不是分词本身(实际构图时只有一种 Sink)
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SyntheticCorpus(100_000, 1.0, 42L).write(out, (long) megabytes << 20);
+        byte[] corpus = out.toByteArray();
+        double scalarSpeed = throughput(corpus, false);
+        double vectorSpeed = vector ? throughput(corpus, true) : 0;
+
+        Random random = new Random(42);
+        for (int round = 0; round < 20_000; round++) {
+            byte[] bytes = randomBytes(random, random.nextInt(round < 10_000 ? 300 : 5_000));
+            List<String> expected = reference(bytes);
+            check(tokens(bytes, null, random).equals(expected), "scalar tokens, round " + round);
+            if (vector) {
+                check(tokens(bytes, WordTokenizer.newVectorScanner(), random).equals(expected), "vector tokens, round " + round);
+            }
+        }
+
+        // 边界情况: 空输入, 只有分隔符, 比一块(64KB)还长的单词, 以及恰好落在块边界上的单词
+        List<byte[]> cases = new ArrayList<>();
+        cases.add(new byte[0]);
+        cases.add(" ,.\n\n\t".getBytes(StandardCharsets.US_ASCII));
+        cases.add(repeat('Q', 200_000));
+        for (int length : new int[]{63, 64, 65, 65_535, 65_536, 65_537}) {
+            byte[] bytes = repeat('a', length + 3);
+            bytes[length] = ' ';
+            cases.add(bytes);
+        }
+        for (byte[] bytes : cases) {
+            List<String> expected = reference(bytes);
+            check(tokens(bytes, null, null).equals(expected), "scalar edge case of " + bytes.length + " bytes");
+            if (vector) {
+                check(tokens(bytes, WordTokenizer.newVectorScanner(), null).equals(expected),
+                        "vector edge case of " + bytes.length + " bytes");
+            }
+        }
+        System.out.println("random and edge-case inputs: token streams identical");
+
+        long[] scalar = digest(corpus, false);
+        System.out.printf("scalar: %d words, %d lines, %.0f MB/s%n", scalar[1], scalar[2], scalarSpeed);
+        if (vector) {
+            long[] vectorized = digest(corpus, true);
+            check(vectorized[0] == scalar[0] && vectorized[1] == scalar[1] && vectorized[2] == scalar[2], "corpus digest");
+            System.out.printf("vector: %d words, %d lines, %.0f MB/s (%.1fx)%n", vectorized[1], vectorized[2],
+                    vectorSpeed, vectorSpeed / scalarSpeed);
+        }
+        System.out.println("OK");
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            int kind = random.nextInt(10);
+            bytes[i] = (byte) (kind < 5 ? 'a' + random.nextInt(26) : kind < 7 ? 'A' + random.nextInt(26)
+                    : kind < 8 ? '\n' : random.nextInt(256));
+        }
+        return bytes;
+    }
+
+    private static byte[] repeat(char c, int length) {
+        byte[] bytes = new byte[length];
+        java.util.Arrays.fill(bytes, (byte) c);
+        return bytes;
+    }
+
+    // 按原先 split("[^a-zA-Z]+") 的方式切分, 去掉空单词
+    private static List<String> reference(byte[] bytes) {
+        List<String> words = new ArrayList<>();
+        for (String word : new String(bytes, StandardCharsets.ISO_8859_1).split("[^a-zA-Z]+")) {
+            if (!word.isEmpty()) {
+                words.add(word.toLowerCase());
+            }
+        }
+        return words;
+    }
+
+    // 分词结果; random 不为 null 时把输入切成随机大小的若干段依次喂入
+    private static List<String> tokens(byte[] bytes, TokenScanner scanner, Random random) {
+        List<String> words = new ArrayList<>();
+        WordTokenizer tokenizer = new WordTokenizer((buffer, length) ->
+                words.add(new String(buffer, 0, length, StandardCharsets.ISO_8859_1)), scanner);
+        int offset = 0;
+        while (offset < bytes.length) {
+            int count = random == null ? bytes.length - offset : 1 + random.nextInt(bytes.length - offset);
+            tokenizer.feed(bytes, offset, count);
+            offset += count;
+        }
+        tokenizer.finish();
+        long newlines = 0;
+        for (byte b : bytes) {
+            if (b == '\n') {
+                newlines++;
+            }
+        }
+        check(tokenizer.lines() == newlines, "line count");
+        return words;
+    }
+
+    // {单词序列的哈希, 单词数, 行数}
+    private static long[] digest(byte[] corpus, boolean vector) {
+        long[] digest = new long[3];
+        WordTokenizer tokenizer = new WordTokenizer((buffer, length) -> {
+            long h = digest[0];
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + buffer[i];
+            }
+            digest[0] = 31 * h + ' ';
+            digest[1]++;
+        }, vector ? WordTokenizer.newVectorScanner() : null);
+        tokenizer.feed(corpus, 0, corpus.length);
+        tokenizer.finish();
+        digest[2] = tokenizer.lines();
+        return digest;
+    }
+
+    // 十次中最快一次的吞吐量(MB/s), 单词只累加长度
+    private static double throughput(byte[] corpus, boolean vector) {
+        long best = Long.MAX_VALUE;
+        long[] total = new long[1];
+        for (int run = 0; run < 10; run++) {
+            long begin = System.nanoTime();
+            WordTokenizer tokenizer = new WordTokenizer((buffer, length) -> total[0] += length,
+                    vector ? WordTokenizer.newVectorScanner() : null);
+            tokenizer.feed(corpus, 0, corpus.length);
+            tokenizer.finish();
+            best = Math.min(best, System.nanoTime() - begin);
+        }
+        return corpus.length / 1e6 / (best / 1e9);
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("mismatch: " + what);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 验证增量追加与写时复制发布的图版本, 不通过时以非零状态退出:
+// 1. 把一个文本文件的各行分成若干批(大小随机)依次 appendLines, 结果与一次 readTxt 整个文件完全相同
+//    (单词 ID、CSR 的 offsets/targets/weights、根结点和最后一个单词)
+// 2. 一个线程逐批追加, 若干读线程不断取当前的图: 每个取到的版本必须恰好是某一批追加之后的状态
+//    (结点数、边数、总边权、入边总权与预先顺序计算的一致), 同一个线程看到的版本只前进不后退,
+//    且读取期间版本内容不变(前后两次统计相同)
+// 用法: java VersionedGraphTest [批数] [读线程数] [语料 MB]
+public class VersionedGraphTest {
+
+    public static void main(String[] args) throws Exception {
+        int batches = args.length > 0 ? Integer.parseInt(args[0]) : 85;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int megabytes = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SyntheticCorpus(20_000, 1.0, 17L).write(out, (long) megabytes << 20);
+        byte[] bytes = out.toByteArray();
+        List<String> lines = Arrays.asList(new String(bytes, StandardCharsets.UTF_8).split("\n", -1));
+        List<List<String>> parts = split(lines, batches, new Random(3));
+
+        // 1. 分批追加与一次读入相同
+        Path file = Files.createTempFile("versioned-graph", ".txt");
+        TextToDotGraph expected = new TextToDotGraph();
+        try {
+            Files.write(file, bytes);
+            expected.readTxt(file.toString());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        TextToDotGraph appended = new TextToDotGraph();
+        // 每批追加之后的 {结点数, 边数, 总边权}
+        long[][] versions = new long[parts.size() + 1][];
+        versions[0] = stats(appended.wordGraph());
+        for (int i = 0; i < parts.size(); i++) {
+            appended.appendLines(parts.get(i));
+            versions[i + 1] = stats(appended.wordGraph());
+        }
+        compare(expected, appended);
+        WordGraph graph = expected.wordGraph();
+        System.out.printf("%d appended batches match one readTxt: %d nodes, %d edges%n", parts.size(),
+                graph.nodeCount(), graph.edgeCount());
+
+        // 2. 边追加边读
+        TextToDotGraph live = new TextToDotGraph();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long[] seen = new long[readers];
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            int reader = r;
+            Thread thread = new Thread(() -> {
+                try {
+                    int last = 0;
+                    while (!done.get()) {
+                        WordGraph version = live.wordGraph();
+                        long[] before = stats(version);
+                        int index = find(versions, before);
+                        check(index >= last, "reader " + reader + " went back from version " + last + " to " + index);
+                        last = index;
+                        Thread.yield();
+                        check(Arrays.equals(before, stats(version)), "version " + index + " changed while being read");
+                        seen[reader]++;
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (List<String> part : parts) {
+            live.appendLines(part);
+        }
+        done.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("concurrent reader failed", failure.get());
+        }
+        compare(expected, live);
+        System.out.printf("%d readers read %s consistent versions while %d batches were published%n", readers,
+                Arrays.toString(seen), parts.size());
+        System.out.println("OK");
+    }
+
+    // 把 lines 分成 count 批, 每批大小随机(至少一行)
+    private static List<List<String>> split(List<String> lines, int count, Random random) {
+        int[] cuts = new int[count + 1];
+        cuts[count] = lines.size();
+        for (int i = 1; i < count; i++) {
+            cuts[i] = 1 + random.nextInt(lines.size() - 1);
+        }
+        Arrays.sort(cuts);
+        List<List<String>> parts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (cuts[i + 1] > cuts[i]) {
+                parts.add(lines.subList(cuts[i], cuts[i + 1]));
+            }
+        }
+        return parts;
+    }
+
+    // {结点数, 边数, 总边权}, 出边与入边的总权必须相同
+    private static long[] stats(WordGraph graph) {
+        long weight = 0;
+        long inWeight = 0;
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            weight += graph.weight(e);
+            inWeight += graph.inWeight(e);
+        }
+        check(weight == inWeight, "out-edge and in-edge weights differ");
+        return new long[]{graph.nodeCount(), graph.edgeCount(), weight};
+    }
+
+    private static int find(long[][] versions, long[] stats) {
+        for (int i = 0; i < versions.length; i++) {
+            if (Arrays.equals(versions[i], stats)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("a reader saw a graph that is not any published version: "
+                + Arrays.toString(stats));
+    }
+
+    private static void compare(TextToDotGraph expected, TextToDotGraph actual) {
+        WordGraph a = expected.wordGraph();
+        WordGraph b = actual.wordGraph();
+        check(a.nodeCount() == b.nodeCount() && a.edgeCount() == b.edgeCount(), "graph size");
+        for (int u = 0; u < a.nodeCount(); u++) {
+            check(a.word(u).equals(b.word(u)), "word " + u);
+            check(a.edgeStart(u) == b.edgeStart(u), "offset of " + a.word(u));
+        }
+        for (int e = 0; e < a.edgeCount(); e++) {
+            check(a.target(e) == b.target(e) && a.weight(e) == b.weight(e), "edge " + e);
+        }
+        check(expected.rootWord().equals(actual.rootWord()), "root word");
+        check(expected.lastWord().equals(actual.lastWord()), "last word");
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("mismatch: " + what);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// 基于 jdk.incubator.vector 的分词扫描: 每次处理一个向量(AVX2 上 32 字节, AVX-512 上 64 字节),
+// 用 b | 0x20 一次完成转小写, 两次比较得到字母掩码, 掩码与左移一位的自身异或即为单词边界, 逐个取出最低位写入 bounds;
+// 换行符个数由比较掩码的 trueCount() 累加. 不足一个向量的尾部逐字节处理
+// 由 WordTokenizer 按类名载入, 编译和运行都需要 --add-modules jdk.incubator.vector(见 pom.xml 中的 vector profile)
+public class VectorTokenScanner implements TokenScanner {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    // 最多 64 个通道, 掩码放得进一个 long
+    private static final long LANE_MASK = LANES == 64 ? -1L : (1L << LANES) - 1;
+
+    private long lines;
+
+    @Override
+    public int scan(byte[] src, int offset, int count, byte[] folded, int[] bounds) {
+        int k = 0;
+        // 上一个字节是否是字母
+        long inWord = 0;
+        int i = 0;
+        for (int upper = SPECIES.loopBound(count); i < upper; i += LANES) {
+            ByteVector bytes = ByteVector.fromArray(SPECIES, src, offset + i);
+            ByteVector lower = bytes.or((byte) 0x20);
+            lower.intoArray(folded, i);
+            // 0x80 以上的字节是负数, 转小写后仍小于 'a'
+            VectorMask<Byte> letters = lower.compare(VectorOperators.GE, (byte) 'a')
+                    .and(lower.compare(VectorOperators.LE, (byte) 'z'));
+            lines += bytes.compare(VectorOperators.EQ, (byte) '\n').trueCount();
+            long bits = letters.toLong();
+            long changes = (bits ^ ((bits << 1) | inWord)) & LANE_MASK;
+            while (changes != 0) {
+                bounds[k++] = i + Long.numberOfTrailingZeros(changes);
+                changes &= changes - 1;
+            }
+            inWord = bits >>> (LANES - 1);
+        }
+        for (; i < count; i++) {
+            byte b = src[offset + i];
+            int c = WordTokenizer.foldLetter(b);
+            long letter = c >= 0 ? 1 : 0;
+            folded[i] = (byte) c;
+            if (letter != inWord) {
+                bounds[k++] = i;
+            }
+            inWord = letter;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        if (inWord != 0) {
+            bounds[k++] = count;
+        }
+        return k;
+    }
+
+    @Override
+    public long lines() {
+        return lines;
+    }
+}